@@ -60,20 +60,28 @@ public class BoundConfig extends ParameterizedConfig
         if (scope == null || bindings.length == 0) {
             return this;
         }
-        if (_bound == null) {
-            _bound = CacheBuilder.newBuilder()
-                .concurrencyLevel(1)
-                .softValues()
-                .weakKeys()
-                .initialCapacity(1)
-                .<Scope, BoundConfig>build().asMap();
+        Map<Scope, BoundConfig> map = _bound;
+        BoundConfig bound = (map == null) ? null : map.get(scope);
+        if (bound != null) {
+            return bound;
         }
-        BoundConfig bound = _bound.get(scope);
-        if (bound == null) {
-            _bound.put(scope, bound = (BoundConfig)clone());
-            bound.init(_cfgmgr);
-            bound._base = this;
-            bound.bind(scope);
+        synchronized (this) {
+            if (_bound == null) {
+                _bound = CacheBuilder.newBuilder()
+                    .concurrencyLevel(1)
+                    .softValues()
+                    .weakKeys()
+                    .initialCapacity(1)
+                    .<Scope, BoundConfig>build().asMap();
+            }
+            bound = _bound.get(scope);
+            if (bound == null) {
+                bound = (BoundConfig)clone();
+                bound.init(_cfgmgr);
+                bound._base = this;
+                bound.bind(scope);
+                _bound.put(scope, bound);
+            }
         }
         return bound;
     }
@@ -127,5 +135,5 @@ public class BoundConfig extends ParameterizedConfig
 
     /** Maps scopes to bound instances. */
     @DeepOmit
-    protected transient Map<Scope, BoundConfig> _bound;
+    protected transient volatile Map<Scope, BoundConfig> _bound;
 }
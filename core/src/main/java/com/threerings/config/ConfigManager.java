@@ -37,6 +37,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 
 import com.samskivert.util.ArrayUtil;
@@ -561,6 +563,27 @@ public class ConfigManager
         }
     }
 
+    /**
+     * Returns the initialized child manager shared under the supplied key, initializing and
+     * registering the given manager as a child of this one if there is none.  The shared children
+     * are softly referenced, so the key should describe the child's configs by value (for
+     * instance, as a digest of their exported form) rather than referring to them.
+     */
+    public ConfigManager getSharedChild (String key, String type, ConfigManager child)
+    {
+        synchronized (_groups) {
+            if (_sharedChildren == null) {
+                _sharedChildren = CacheUtil.softValues();
+            }
+            ConfigManager shared = _sharedChildren.get(key);
+            if (shared == null) {
+                child.init(type, this);
+                _sharedChildren.put(key, shared = child);
+            }
+            return shared;
+        }
+    }
+
     /**
      * Writes the fields of this object.
      */
@@ -684,6 +707,31 @@ public class ConfigManager
         }
     }
 
+    /**
+     * Notes that a derived config instance belonging to this manager was created.  The most
+     * recently created instances are strongly referenced so that they survive the wholesale
+     * clearing of soft references under memory pressure; older ones may be collected as before
+     * and will be pinned again if they are recreated.
+     */
+    protected void noteDerivedCreated (ParameterizedConfig instance)
+    {
+        Cache<ParameterizedConfig, ParameterizedConfig> recent = _recentDerived;
+        if (recent == null) {
+            synchronized (this) {
+                if ((recent = _recentDerived) == null) {
+                    // weak keys are compared by identity, and each entry's (strong) value keeps
+                    // its key alive until the entry is evicted
+                    _recentDerived = recent = CacheBuilder.newBuilder()
+                        .concurrencyLevel(1)
+                        .weakKeys()
+                        .maximumSize(_parent == null ? ROOT_RECENT_DERIVED : RECENT_DERIVED)
+                        .<ParameterizedConfig, ParameterizedConfig>build();
+                }
+            }
+        }
+        recent.put(instance, instance);
+    }
+
     /** The type of this manager. */
     protected String _type;
 
@@ -713,4 +761,16 @@ public class ConfigManager
 
     /** Set when we should ignore config updates because we're refreshing. */
     protected boolean _ignoreUpdates;
+
+    /** Child managers shared by the users of identical configs, mapped by key. */
+    protected transient Map<String, ConfigManager> _sharedChildren;
+
+    /** The most recently created derived instances of our configs. */
+    protected transient volatile Cache<ParameterizedConfig, ParameterizedConfig> _recentDerived;
+
+    /** The number of recently accessed derived instances retained by the root manager. */
+    protected static final int ROOT_RECENT_DERIVED = 1024;
+
+    /** The number of recently accessed derived instances retained by other managers. */
+    protected static final int RECENT_DERIVED = 64;
 }
@@ -33,6 +33,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.google.common.collect.Lists;
 
 import com.threerings.editor.Editable;
@@ -97,23 +99,63 @@ public class ParameterizedConfig extends ManagedConfig
                 break;
             }
         }
-        if (_derived == null) {
-            _derived = CacheUtil.softValues(1);
-        }
-        ParameterizedConfig instance = _derived.get(filteredArgs);
-        if (instance == null) {
-            if (derivedArgs == null) {
-                derivedArgs = filteredArgs.clone();
+        // the cache map itself is safe for concurrent reads; creation happens under the lock
+        // so that shared configs never publish partially initialized instances
+        Map<ArgumentMap, ParameterizedConfig> derived = _derived;
+        ParameterizedConfig instance = (derived == null) ? null : derived.get(filteredArgs);
+        if (instance != null) {
+            if (DERIVED_STATS) {
+                _derivedHits.incrementAndGet();
+            }
+        } else {
+            boolean created = false;
+            synchronized (this) {
+                if (_derived == null) {
+                    _derived = CacheUtil.softValues(1);
+                }
+                instance = _derived.get(filteredArgs);
+                if (instance == null) {
+                    if (derivedArgs == null) {
+                        derivedArgs = filteredArgs.clone();
+                    }
+                    instance = (ParameterizedConfig)clone();
+                    instance.init(_cfgmgr);
+                    instance._base = this;
+                    instance._args = derivedArgs;
+                    applyArguments(instance, derivedArgs);
+                    _derived.put(derivedArgs, instance);
+                    created = true;
+                }
+            }
+            if (DERIVED_STATS) {
+                (created ? _derivedMisses : _derivedHits).incrementAndGet();
+            }
+            // only new instances are pinned, so hits never touch the manager's cache
+            if (created && _cfgmgr != null) {
+                _cfgmgr.noteDerivedCreated(instance);
             }
-            _derived.put(derivedArgs, instance = (ParameterizedConfig)clone());
-            instance.init(_cfgmgr);
-            instance._base = this;
-            instance._args = derivedArgs;
-            applyArguments(instance, derivedArgs);
         }
         return instance.getBound(scope);
     }
 
+    /**
+     * Returns the number of derived instance requests satisfied from the cache since startup.
+     * Always zero unless the <code>derived_config_stats</code> system property is set.
+     */
+    public static long getDerivedHits ()
+    {
+        return _derivedHits.get();
+    }
+
+    /**
+     * Returns the number of derived instances created since startup.  Always zero unless the
+     * <code>derived_config_stats</code> system property is set.
+     */
+    public static long getDerivedMisses ()
+    {
+        return _derivedMisses.get();
+    }
+
     @Override
     public void wasUpdated ()
     {
@@ -228,5 +270,13 @@ public class ParameterizedConfig extends ManagedConfig
 
     /** Maps arguments to derived instances. */
     @DeepOmit
-    protected transient Map<ArgumentMap, ParameterizedConfig> _derived;
+    protected transient volatile Map<ArgumentMap, ParameterizedConfig> _derived;
+
+    /** Whether to keep derived instance cache statistics (off by default, since every lookup
+     * would otherwise write to the same shared counters). */
+    protected static final boolean DERIVED_STATS = Boolean.getBoolean("derived_config_stats");
+
+    /** Derived instance cache statistics. */
+    protected static final AtomicLong _derivedHits = new AtomicLong(),
+        _derivedMisses = new AtomicLong();
 }
@@ -139,7 +139,7 @@ public abstract class Delta
     }
 
     /** Custom creator methods mapped by class. */
-    protected static Map<Class<?>, DeltaCreator> _creators = Maps.newIdentityHashMap();
+    protected static final Map<Class<?>, DeltaCreator> _creators = Maps.newConcurrentMap();
 
     /** Streamer for raw class references. */
     protected static Streamer _classStreamer;
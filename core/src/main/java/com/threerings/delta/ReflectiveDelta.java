@@ -33,6 +33,7 @@ import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -239,7 +240,10 @@ public class ReflectiveDelta extends Delta
     {
         ClassMapping cmap = _classes.get(clazz);
         if (cmap == null) {
-            _classes.put(clazz, cmap = new ClassMapping(clazz));
+            ClassMapping existing = _classes.putIfAbsent(clazz, cmap = new ClassMapping(clazz));
+            if (existing != null) {
+                cmap = existing;
+            }
         }
         return cmap;
     }
@@ -443,7 +447,8 @@ public class ReflectiveDelta extends Delta
     protected Object[] _values;
 
     /** Cached mappings for deltable classes. */
-    protected static Map<Class<?>, ClassMapping> _classes = Maps.newHashMap();
+    protected static final ConcurrentMap<Class<?>, ClassMapping> _classes =
+        Maps.newConcurrentMap();
 
     /** Field handlers for primitive fields mapped by class. */
     protected static final Map<Class<?>, FieldHandler> PRIMITIVE_FIELD_HANDLERS =
@@ -32,6 +32,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
 
 import com.samskivert.util.ArrayUtil;
 import com.samskivert.util.ListUtil;
@@ -248,13 +251,13 @@ public class Introspector
     }
 
     /** Cached category lists. */
-    protected static HashMap<Class<?>, String[]> _categories = new HashMap<Class<?>, String[]>();
+    protected static final Map<Class<?>, String[]> _categories = Maps.newConcurrentMap();
 
     /** Cached property lists. */
-    protected static HashMap<Class<?>, Property[]> _properties = new HashMap<Class<?>, Property[]>();
+    protected static final Map<Class<?>, Property[]> _properties = Maps.newConcurrentMap();
 
     /** Cached editor bundle mappings. */
-    protected static HashMap<Class<?>, String> _bundles = new HashMap<Class<?>, String>();
+    protected static final Map<Class<?>, String> _bundles = Maps.newConcurrentMap();
 
     /** Sorts properties by increasing weight. */
     protected static final Comparator<Property> WEIGHT_COMP = new Comparator<Property>() {
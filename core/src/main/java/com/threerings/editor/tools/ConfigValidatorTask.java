@@ -26,6 +26,7 @@
 package com.threerings.editor.tools;
 
 import java.io.File;
+import java.io.PrintStream;
 
 import java.util.List;
 
@@ -39,8 +40,10 @@ import com.google.common.collect.Lists;
 import com.threerings.resource.ResourceManager;
 import com.threerings.util.MessageManager;
 
+import com.threerings.config.ConfigGroup;
 import com.threerings.config.ConfigManager;
 import com.threerings.config.ManagedConfig;
+import com.threerings.editor.util.ReferenceIndex;
 
 /**
  * Validates the references in a set of configs.
@@ -55,6 +58,15 @@ public class ConfigValidatorTask extends Task
         _filesets.add(set);
     }
 
+    /**
+     * Sets the file in which to store the reference index, so that unchanged configs need not be
+     * crawled on subsequent runs.
+     */
+    public void setIndex (File index)
+    {
+        _index = index;
+    }
+
     @Override
     public void execute ()
         throws BuildException
@@ -63,11 +75,34 @@ public class ConfigValidatorTask extends Task
         ResourceManager rsrcmgr = new ResourceManager("rsrc/");
         MessageManager msgmgr = new MessageManager("rsrc.i18n");
         rsrcmgr.initResourceDir("rsrc/");
-        ConfigManager cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
+        final ConfigManager cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
         cfgmgr.init();
 
+        ReferenceIndex index = new ReferenceIndex();
+        if (_index != null) {
+            index.load(_index);
+        }
+
         // validate the base configs
-        valid = cfgmgr.validateReferences("", System.err) && valid;
+        for (ConfigGroup<?> group : cfgmgr.getGroups()) {
+            String path = cfgmgr.getConfigPath() + group.getName();
+            long stamp = Math.max(rsrcmgr.getResourceFile(path + ".xml").lastModified(),
+                rsrcmgr.getResourceFile(path + ".dat").lastModified());
+            final String gwhere = group.getName() + ":";
+            for (final ManagedConfig config : group.getConfigs()) {
+                try {
+                    valid = index.validateReferences(path + ":" + config.getName(), stamp,
+                        cfgmgr, System.err, new ReferenceIndex.Validator() {
+                        public boolean validateReferences (PrintStream out) {
+                            return config.validateReferences(gwhere + config.getName(), out);
+                        }
+                    }) && valid;
+                } catch (Exception e) {
+                    throw new BuildException("Error validating '" + gwhere +
+                        config.getName() + "': " + e);
+                }
+            }
+        }
 
         // validate the resource configs
         for (FileSet fs : _filesets) {
@@ -75,18 +110,28 @@ public class ConfigValidatorTask extends Task
             File fromDir = fs.getDir(getProject());
             for (String file : ds.getIncludedFiles()) {
                 File source = new File(fromDir, file);
-                String path = rsrcmgr.getResourcePath(source);
-                ManagedConfig config = (path == null) ? null : cfgmgr.getResourceConfig(path);
-                if (config != null) {
-                    try {
-                        valid = config.validateReferences(path, System.err) && valid;
-                    } catch (Exception e) {
-                        throw new BuildException("Error validating '" + path + "': " + e);
-                    }
+                final String path = rsrcmgr.getResourcePath(source);
+                if (path == null) {
+                    continue;
+                }
+                try {
+                    valid = index.validateReferences(path, source.lastModified(), cfgmgr,
+                        System.err, new ReferenceIndex.Validator() {
+                        public boolean validateReferences (PrintStream out) {
+                            ManagedConfig config = cfgmgr.getResourceConfig(path);
+                            return config == null || config.validateReferences(path, out);
+                        }
+                    }) && valid;
+                } catch (Exception e) {
+                    throw new BuildException("Error validating '" + path + "': " + e);
                 }
             }
         }
 
+        if (_index != null) {
+            index.pruneUnvalidated();
+            index.save(_index);
+        }
         if (!valid) {
             throw new BuildException();
         }
@@ -94,4 +139,7 @@ public class ConfigValidatorTask extends Task
 
     /** A list of filesets that contain resource configs. */
     protected List<FileSet> _filesets = Lists.newArrayList();
+
+    /** The file in which to store the reference index, if any. */
+    protected File _index;
 }
@@ -231,6 +231,12 @@ public class PropertyUtil
         String where, ConfigManager cfgmgr, Set<Tuple<Class<?>, String>> configs,
         Set<String> resources, PrintStream out)
     {
+        // if we're recording references for the index, defer the checks until replay
+        ReferenceIndex.Record record = ReferenceIndex.getRecording();
+        if (record != null) {
+            record.addReferences(where, cfgmgr, configs, resources);
+            return true;
+        }
         boolean result = true;
         for (Tuple<Class<?>, String> tuple : configs) {
             @SuppressWarnings("unchecked") Class<ManagedConfig> cclass =
@@ -0,0 +1,372 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.editor.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.samskivert.util.Tuple;
+
+import com.threerings.config.ConfigManager;
+import com.threerings.config.ManagedConfig;
+
+import static com.threerings.editor.Log.log;
+
+/**
+ * A persistent index of the configs and resources referenced by a set of files (or configs
+ * within files), keyed by an arbitrary string and stamped with the file's modification time.
+ * When a file has not changed, its references can be validated (or searched) without loading it
+ * or crawling it reflectively.
+ */
+public class ReferenceIndex
+{
+    /**
+     * Performs a full validation of an object, for use when the index has no current record.
+     */
+    public interface Validator
+    {
+        /**
+         * Validates the references of the object.
+         *
+         * @return true if the references are valid.
+         */
+        public boolean validateReferences (PrintStream out)
+            throws Exception;
+    }
+
+    /**
+     * Returns the record being collected on the current thread, if any.
+     */
+    public static Record getRecording ()
+    {
+        return _recording.get();
+    }
+
+    /**
+     * Loads the index from the specified file, if it exists.
+     */
+    public void load (File file)
+    {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return;
+        }
+        try {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            for (int ii = 0, nn = in.readInt(); ii < nn; ii++) {
+                String key = in.readUTF();
+                _records.put(key, new Record(in));
+            }
+        } catch (IOException e) {
+            log.warning("Failed to read reference index.", "file", file, e);
+            _records.clear();
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // no worries
+            }
+        }
+    }
+
+    /**
+     * Saves the index to the specified file.
+     */
+    public void save (File file)
+    {
+        try {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                out.writeInt(VERSION);
+                out.writeInt(_records.size());
+                for (Map.Entry<String, Record> entry : _records.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            log.warning("Failed to write reference index.", "file", file, e);
+        }
+    }
+
+    /**
+     * Validates the references associated with the given key.  If the index contains a record
+     * with the given stamp, the recorded references are checked against the supplied (root)
+     * config manager.  Otherwise, the validator is invoked to crawl the object and record its
+     * references.
+     *
+     * @return true if the references are valid.
+     */
+    public boolean validateReferences (
+        String key, long stamp, ConfigManager cfgmgr, PrintStream out, Validator validator)
+        throws Exception
+    {
+        _validated.add(key);
+        Record record = _records.get(key);
+        if (record == null || record.stamp != stamp) {
+            record = new Record(stamp);
+            ByteArrayOutputStream messages = new ByteArrayOutputStream();
+            PrintStream pout = new PrintStream(messages, true, "UTF-8");
+            _recording.set(record);
+            try {
+                record.valid = validator.validateReferences(pout);
+            } finally {
+                _recording.remove();
+            }
+            record.messages = messages.toString("UTF-8");
+            _records.put(key, record);
+        }
+        return record.validate(cfgmgr, out);
+    }
+
+    /**
+     * Removes the record associated with the given key.
+     */
+    public void remove (String key)
+    {
+        _records.remove(key);
+    }
+
+    /**
+     * Removes the records of all keys that have not been validated since the index was created,
+     * so that records for configs and files that no longer exist don't accumulate.  Call after
+     * validating every current key and before saving.
+     */
+    public void pruneUnvalidated ()
+    {
+        _records.keySet().retainAll(_validated);
+    }
+
+    /**
+     * Returns the keys of all records that reference the specified config.
+     */
+    public List<String> getConfigReferrers (Class<?> clazz, String name)
+    {
+        Tuple<Class<?>, String> config = new Tuple<Class<?>, String>(clazz, name);
+        List<String> keys = Lists.newArrayList();
+        for (Map.Entry<String, Record> entry : _records.entrySet()) {
+            for (Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs :
+                    entry.getValue().references.values()) {
+                if (refs.left.contains(config)) {
+                    keys.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the keys of all records that reference the specified resource.
+     */
+    public List<String> getResourceReferrers (String path)
+    {
+        List<String> keys = Lists.newArrayList();
+        for (Map.Entry<String, Record> entry : _records.entrySet()) {
+            for (Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs :
+                    entry.getValue().references.values()) {
+                if (refs.right.contains(path)) {
+                    keys.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The references recorded for a single key.
+     */
+    public static class Record
+    {
+        /** The stamp (modification time) of the source. */
+        public long stamp;
+
+        /** Whether or not the internal checks (those not involving external references) passed. */
+        public boolean valid;
+
+        /** The messages output by the internal checks. */
+        public String messages = "";
+
+        /** The external references, mapped by location. */
+        public Map<String, Tuple<Set<Tuple<Class<?>, String>>, Set<String>>> references =
+            Maps.newHashMap();
+
+        /**
+         * Creates a new, empty record.
+         */
+        public Record (long stamp)
+        {
+            this.stamp = stamp;
+        }
+
+        /**
+         * Reads a record from the supplied stream.
+         */
+        public Record (DataInputStream in)
+            throws IOException
+        {
+            stamp = in.readLong();
+            valid = in.readBoolean();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            messages = new String(bytes, "UTF-8");
+            for (int ii = 0, nn = in.readInt(); ii < nn; ii++) {
+                Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs = getReferences(in.readUTF());
+                for (int jj = 0, mm = in.readInt(); jj < mm; jj++) {
+                    String cname = in.readUTF();
+                    String name = in.readUTF();
+                    try {
+                        refs.left.add(new Tuple<Class<?>, String>(Class.forName(cname), name));
+                    } catch (ClassNotFoundException e) {
+                        throw (IOException)new IOException(
+                            "Unknown config class: " + cname).initCause(e);
+                    }
+                }
+                for (int jj = 0, mm = in.readInt(); jj < mm; jj++) {
+                    refs.right.add(in.readUTF());
+                }
+            }
+        }
+
+        /**
+         * Adds a set of references at the specified location, omitting config references
+         * satisfied by configs embedded within the source (those will not change as long as the
+         * source doesn't).
+         */
+        public void addReferences (
+            String where, ConfigManager cfgmgr, Set<Tuple<Class<?>, String>> configs,
+            Set<String> resources)
+        {
+            Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs = getReferences(where);
+            ConfigManager root = cfgmgr.getRoot();
+            for (Tuple<Class<?>, String> tuple : configs) {
+                @SuppressWarnings("unchecked") Class<ManagedConfig> cclass =
+                    (Class<ManagedConfig>)tuple.left;
+                if (cfgmgr != root) {
+                    ManagedConfig config = cfgmgr.getConfig(cclass, tuple.right);
+                    if (config != null && config != root.getConfig(cclass, tuple.right)) {
+                        continue;
+                    }
+                }
+                refs.left.add(tuple);
+            }
+            refs.right.addAll(resources);
+        }
+
+        /**
+         * Writes the record to the supplied stream.
+         */
+        public void write (DataOutputStream out)
+            throws IOException
+        {
+            out.writeLong(stamp);
+            out.writeBoolean(valid);
+            byte[] bytes = messages.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt(references.size());
+            for (Map.Entry<String, Tuple<Set<Tuple<Class<?>, String>>, Set<String>>> entry :
+                    references.entrySet()) {
+                out.writeUTF(entry.getKey());
+                Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs = entry.getValue();
+                out.writeInt(refs.left.size());
+                for (Tuple<Class<?>, String> config : refs.left) {
+                    out.writeUTF(config.left.getName());
+                    out.writeUTF(config.right);
+                }
+                out.writeInt(refs.right.size());
+                for (String resource : refs.right) {
+                    out.writeUTF(resource);
+                }
+            }
+        }
+
+        /**
+         * Validates the recorded references against the supplied config manager.
+         */
+        public boolean validate (ConfigManager cfgmgr, PrintStream out)
+        {
+            out.print(messages);
+            boolean result = valid;
+            for (Map.Entry<String, Tuple<Set<Tuple<Class<?>, String>>, Set<String>>> entry :
+                    references.entrySet()) {
+                Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs = entry.getValue();
+                result = PropertyUtil.validateReferences(
+                    entry.getKey(), cfgmgr, refs.left, refs.right, out) && result;
+            }
+            return result;
+        }
+
+        /**
+         * Returns the sets of references at the specified location, creating them if necessary.
+         */
+        protected Tuple<Set<Tuple<Class<?>, String>>, Set<String>> getReferences (String where)
+        {
+            Tuple<Set<Tuple<Class<?>, String>>, Set<String>> refs = references.get(where);
+            if (refs == null) {
+                references.put(where, refs = new Tuple<Set<Tuple<Class<?>, String>>, Set<String>>(
+                    Sets.<Tuple<Class<?>, String>>newHashSet(), Sets.<String>newHashSet()));
+            }
+            return refs;
+        }
+    }
+
+    /** The records, mapped by key. */
+    protected Map<String, Record> _records = Maps.newHashMap();
+
+    /** The keys validated since the index was created. */
+    protected Set<String> _validated = Sets.newHashSet();
+
+    /** The record being collected on each thread, if any. */
+    protected static final ThreadLocal<Record> _recording = new ThreadLocal<Record>();
+
+    /** The version of the index file format. */
+    protected static final int VERSION = 1;
+}
@@ -32,7 +32,11 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import com.threerings.util.ReflectionUtil;
 
@@ -48,11 +52,25 @@ public class ObjectMarshaller
     {
         ObjectMarshaller marshaller = _marshallers.get(clazz);
         if (marshaller == null) {
-            _marshallers.put(clazz, marshaller = new ObjectMarshaller(clazz));
+            // if another thread got there first, use its marshaller so that everyone shares the
+            // same prototype
+            ObjectMarshaller existing = _marshallers.putIfAbsent(
+                clazz, marshaller = new ObjectMarshaller(clazz));
+            if (existing != null) {
+                marshaller = existing;
+            }
         }
         return marshaller;
     }
 
+    /**
+     * Returns a snapshot of the set of classes for which marshallers have been created.
+     */
+    public static Set<Class<?>> getMarshalledClasses ()
+    {
+        return Sets.newHashSet(_marshallers.keySet());
+    }
+
     /**
      * Returns a reference to the prototype object (used to determine field defaults).
      */
@@ -61,6 +79,23 @@ public class ObjectMarshaller
         return _prototype;
     }
 
+    /**
+     * Checks whether the class has a custom <code>readFields</code> method.
+     */
+    public boolean hasCustomReader ()
+    {
+        return _reader != null;
+    }
+
+    /**
+     * Returns the names of the exportable fields, in the order in which they are written by
+     * default.
+     */
+    public String[] getFieldNames ()
+    {
+        return _fieldNames;
+    }
+
     /**
      * Reads the fields of an object from the specified importer.
      */
@@ -137,6 +172,10 @@ public class ObjectMarshaller
         for (int ii = 0; ii < _fields.length; ii++) {
             _fields[ii] = new FieldData(fields.get(ii));
         }
+        _fieldNames = new String[_fields.length];
+        for (int ii = 0; ii < _fields.length; ii++) {
+            _fieldNames[ii] = _fields[ii]._name;
+        }
 
         // create the prototype
         try {
@@ -226,10 +265,13 @@ public class ObjectMarshaller
     /** The object's field data. */
     protected FieldData[] _fields;
 
+    /** The names of the object's fields, in order. */
+    protected String[] _fieldNames;
+
     /** The prototype object. */
     protected Object _prototype;
 
     /** Maps classes to created marshallers. */
-    protected static HashMap<Class<?>, ObjectMarshaller> _marshallers =
-        new HashMap<Class<?>, ObjectMarshaller>();
+    protected static final ConcurrentMap<Class<?>, ObjectMarshaller> _marshallers =
+        Maps.newConcurrentMap();
 }
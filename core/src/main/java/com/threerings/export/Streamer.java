@@ -38,7 +38,9 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
 
-import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
 
 import org.lwjgl.BufferUtils;
 
@@ -106,7 +108,7 @@ public abstract class Streamer<T>
     protected static enum Dummy {}
 
     /** Registered streamers. */
-    protected static HashMap<Class<?>, Streamer> _streamers = new HashMap<Class<?>, Streamer>();
+    protected static final Map<Class<?>, Streamer> _streamers = Maps.newConcurrentMap();
     static {
         // register basic streamers for wrapper types, primitive arrays
         Streamer streamer = new Streamer<Boolean>() {
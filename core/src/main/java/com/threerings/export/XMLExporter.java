@@ -22,29 +22,21 @@
 // INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
 // LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
 // SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
-
 package com.threerings.export;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.EnumSet;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSOutput;
-import org.w3c.dom.ls.LSSerializer;
-
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
 
 import com.threerings.util.ReflectionUtil;
@@ -52,7 +44,10 @@ import com.threerings.util.ReflectionUtil;
 import static com.threerings.export.Log.log;
 
 /**
- * Exports to an XML format.
+ * Exports to an XML format.  Rather than building a DOM document, the exporter makes a single
+ * pass over the object graph, buffering the output as text interspersed with the start tags of
+ * object elements (which may acquire ids when the objects are referenced again), and streams the
+ * result when finished.
  */
 public class XMLExporter extends Exporter
 {
@@ -72,17 +67,9 @@ public class XMLExporter extends Exporter
         throws IOException
     {
         if (_document == null) {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            try {
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                _document = builder.newDocument();
-            } catch (ParserConfigurationException e) {
-                throw new IOException("Error creating XML document [error=" + e + "].");
-            }
-            _document.appendChild(_element = _document.createElement("java"));
-            _element.setAttribute("version", VERSION);
-            _element.setAttribute("class", XMLImporter.class.getName());
-            appendln();
+            _fragment = _document = new Fragment();
+            _document.append("<java class=\"").append(XMLImporter.class.getName())
+                .append("\" version=\"").append(VERSION).append("\">\n");
         }
         write("object", object, Object.class);
     }
@@ -147,17 +134,13 @@ public class XMLExporter extends Exporter
     public <T> void write (String name, T value, Class<T> clazz)
         throws IOException
     {
-        // replace any existing value
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals(name)) {
-                // remove any children
-                Element child = (Element)node;
-                child.setTextContent(null);
-                write(child, value, clazz);
-                return;
-            }
+        Fragment ofragment = _fragment;
+        _fragment = getField(name);
+        try {
+            writeElement(name, value, clazz);
+        } finally {
+            _fragment = ofragment;
         }
-        append(name, value, clazz);
     }
 
     @Override
@@ -174,14 +157,14 @@ public class XMLExporter extends Exporter
     public void finish ()
         throws IOException
     {
-        // create the output object
-        DOMImplementationLS impl = (DOMImplementationLS)_document.getImplementation();
-        LSOutput lsout = impl.createLSOutput();
-        lsout.setByteStream(_out);
-
-        // write out the document
-        LSSerializer serializer = impl.createLSSerializer();
-        serializer.write(_document, lsout);
+        if (_document == null) {
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(_out, "UTF-8"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        _document.write(writer);
+        writer.write("</java>");
+        writer.flush();
     }
 
     /**
@@ -190,20 +173,19 @@ public class XMLExporter extends Exporter
     protected <T> void append (String name, T value, Class<T> clazz)
         throws IOException
     {
-        appendIndent();
-        Element child = _document.createElement(name);
-        _element.appendChild(child);
-        write(child, value, clazz);
-        appendln();
+        _fragment.append(_indent);
+        writeElement(name, value, clazz);
+        _fragment.append('\n');
     }
 
     /**
-     * Writes an object to the specified element.
+     * Writes an element containing the supplied object to the current fragment.
      */
-    protected void write (Element element, Object value, Class<?> clazz)
+    protected void writeElement (String name, Object value, Class<?> clazz)
         throws IOException
     {
         if (value == null) {
+            _fragment.append('<').append(name).append("/>");
             return;
         }
         // to help readability, always write the values for certain (immutable) types
@@ -211,60 +193,93 @@ public class XMLExporter extends Exporter
             value instanceof Class<?> || value instanceof Double || value instanceof Enum ||
             value instanceof Float || value instanceof Integer || value instanceof Long ||
             value instanceof Short || value instanceof String || value instanceof File) {
-            writeValue(element, value, clazz);
+            writeValue(name, value, clazz, null);
             return;
         }
         Element previous = _elements.get(value);
         if (previous != null) {
             Integer depth = _depths.get(value);
+            String attr;
             if (depth != null) {
-                previous.setAttribute("depth", depth.toString());
-                element.setAttribute("rdepth", depth.toString());
+                previous.depth = depth;
+                attr = " rdepth=\"" + depth;
             } else {
-                String id = previous.getAttribute("id");
-                if (id.isEmpty()) {
-                    previous.setAttribute("id", id = Integer.toString(++_lastObjectId));
+                if (previous.id == 0) {
+                    previous.id = ++_lastObjectId;
                 }
-                element.setAttribute("ref", id);
+                attr = " ref=\"" + previous.id;
             }
+            _fragment.append('<').append(name).append(attr).append("\"/>");
 
         } else {
+            Element element = new Element(name);
             _elements.put(value, element);
             _depths.put(value, _depth++);
-            writeValue(element, value, clazz);
+            writeValue(name, value, clazz, element);
             _depths.remove(value);
             _depth--;
         }
     }
 
     /**
-     * Writes the value of an object to the specified element.
+     * Writes an element containing the value of an object.
+     *
+     * @param element the element to which to write the object, or <code>null</code> to write a
+     * simple immutable value directly to the current fragment.
      */
-    protected void writeValue (Element element, Object value, Class<?> clazz)
+    protected void writeValue (String name, Object value, Class<?> clazz, Element element)
         throws IOException
     {
         // write the class unless we can determine that implicitly
         Class<?> cclazz = getClass(value);
-        if (cclazz != clazz) {
-            element.setAttribute("class", cclazz.getName());
-        }
+        String cattr = (cclazz == clazz) ? null : cclazz.getName();
+
         // see if we can convert the value to a string
         @SuppressWarnings("unchecked") Stringifier<Object> stringifier =
             Stringifier.getStringifier(cclazz);
         if (stringifier != null) {
+            Fragment target = _fragment;
+            if (element == null) {
+                target.append('<').append(name);
+                if (cattr != null) {
+                    target.append(" class=\"").appendEscaped(cattr, true).append('"');
+                }
+                target.append('>');
+            } else {
+                element.cclass = cattr;
+                target.add(element);
+                target = element;
+            }
             // because empty text nodes are removed, we must include a comment to
             // signify an empty string
             String str = stringifier.toString(value);
-            element.appendChild(str.isEmpty() ?
-                _document.createComment("empty") : _document.createTextNode(str));
+            if (str.isEmpty()) {
+                target.append("<!--empty-->");
+            } else {
+                target.appendEscaped(str, false);
+            }
+            target.append("</").append(name).append('>');
             return;
         }
+        if (element == null) {
+            throw new IOException("Value is not exportable [class=" + cclazz + "].");
+        }
+        element.cclass = cattr;
+        if (value instanceof EnumSet) {
+            EnumSet<?> set = (EnumSet<?>)value;
+            element.eclass = ((Enum)(set.isEmpty() ? EnumSet.complementOf(set) : set)
+                .iterator().next()).getDeclaringClass().getName();
+        }
+        _fragment.add(element);
+
         String oindent = _indent;
-        Element oelement = _element;
-        _element = element;
+        Fragment ofragment = _fragment;
+        HashMap<String, Fragment> ofields = _fields;
+        _fragment = element;
+        _fields = null;
         _indent = _indent + "  ";
         try {
-            appendln();
+            element.append('\n');
             // write the outer class information, if applicable
             Object outer = ReflectionUtil.getOuter(value);
             if (outer != null) {
@@ -277,9 +292,7 @@ public class XMLExporter extends Exporter
                     (Class<Object>)cclazz.getComponentType();
                 writeEntries((Object[])value, ctype);
             } else if (value instanceof Collection) {
-                if (value instanceof EnumSet) {
-                    writeEntries((EnumSet)value);
-                } else if (value instanceof Multiset) {
+                if (value instanceof Multiset) {
                     writeEntries((Multiset)value);
                 } else {
                     writeEntries((Collection)value);
@@ -291,8 +304,11 @@ public class XMLExporter extends Exporter
             }
         } finally {
             _indent = oindent;
-            appendIndent();
-            _element = oelement;
+            _fragment = ofragment;
+            _fields = ofields;
+            element.append(_indent).append("</").append(name).append('>');
+            // the fields can no longer be replaced, so we can merge them into the element
+            element.inline();
         }
     }
 
@@ -307,20 +323,6 @@ public class XMLExporter extends Exporter
         }
     }
 
-    /**
-     * Writes out the enum class of an EnumSet before writing the entries.  This will fail if the
-     * enum class has no defined enums.
-     */
-    protected void writeEntries (EnumSet set)
-        throws IOException
-    {
-        @SuppressWarnings("unchecked") Class<Object> ctype =
-                ((Enum)(set.isEmpty() ? EnumSet.complementOf(set) : set)
-                        .iterator().next()).getDeclaringClass();
-        _element.setAttribute("eclass", ctype.getName());
-        writeEntries((Collection)set);
-    }
-
     /**
      * Writes out the entries of a collection.
      */
@@ -357,58 +359,276 @@ public class XMLExporter extends Exporter
     }
 
     /**
-     * Appends a simple value element to the current element.
+     * Writes a simple value field of the current object.
      */
     protected void setValue (String name, String value)
     {
-        // replace any existing value
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals(name)) {
-                // remove any children and replace with a single text node (which may be empty,
-                // hence calling setTextContent with null rather than the value)
-                Element child = (Element)node;
-                child.setTextContent(null);
-                child.appendChild(_document.createTextNode(value));
-                return;
-            }
+        Fragment field = getField(name);
+        if (value.isEmpty()) {
+            field.append('<').append(name).append("/>");
+        } else {
+            field.append('<').append(name).append('>')
+                .appendEscaped(value, false).append("</").append(name).append('>');
         }
-        appendIndent();
-        Element child = _document.createElement(name);
-        _element.appendChild(child);
-        child.appendChild(_document.createTextNode(value));
-        appendln();
     }
 
     /**
-     * Appends the current indentation to the current element.
+     * Returns the (empty) fragment to which to write the named field of the current object.
+     * Writing a field more than once replaces the earlier value in place.
      */
-    protected void appendIndent ()
+    protected Fragment getField (String name)
     {
-        _element.appendChild(_document.createTextNode(_indent));
+        if (_fields == null) {
+            _fields = new HashMap<String, Fragment>();
+        }
+        Fragment field = _fields.get(name);
+        if (field != null) {
+            field.clear();
+            return field;
+        }
+        _fields.put(name, field = new Fragment());
+        _fragment.append(_indent);
+        _fragment.add(field);
+        _fragment.append('\n');
+        return field;
+    }
+
+    /**
+     * A piece of buffered output: literal text interspersed with nested fragments.
+     */
+    protected static class Fragment
+    {
+        /**
+         * Appends a string to the fragment.
+         */
+        public Fragment append (String str)
+        {
+            text().append(str);
+            return this;
+        }
+
+        /**
+         * Appends a character to the fragment.
+         */
+        public Fragment append (char c)
+        {
+            text().append(c);
+            return this;
+        }
+
+        /**
+         * Appends character data with the same escaping as the DOM serializer.
+         */
+        public Fragment appendEscaped (String str, boolean attribute)
+        {
+            StringBuilder text = text();
+            for (int ii = 0, nn = str.length(); ii < nn; ii++) {
+                char c = str.charAt(ii);
+                switch (c) {
+                    case '<': text.append("&lt;"); break;
+                    case '>': text.append("&gt;"); break;
+                    case '&': text.append("&amp;"); break;
+                    case '\r': text.append("&#13;"); break;
+                    case '"':
+                        text.append(attribute ? "&quot;" : "\"");
+                        break;
+                    case '\t': case '\n':
+                        if (attribute) {
+                            text.append("&#").append((int)c).append(';');
+                        } else {
+                            text.append(c);
+                        }
+                        break;
+                    default:
+                        if (Character.isHighSurrogate(c) && ii + 1 < nn &&
+                                Character.isLowSurrogate(str.charAt(ii + 1))) {
+                            text.append("&#").append(
+                                Character.toCodePoint(c, str.charAt(++ii))).append(';');
+                        } else if (c < ' ' || (c >= 0x7F && c <= 0x9F)) {
+                            text.append("&#").append((int)c).append(';');
+                        } else {
+                            text.append(c);
+                        }
+                        break;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds a nested fragment.
+         */
+        public void add (Fragment fragment)
+        {
+            flushText();
+            if (_parts == null) {
+                _parts = new ArrayList<Object>(4);
+            }
+            _parts.add(fragment);
+        }
+
+        /**
+         * Removes all of the fragment's contents.
+         */
+        public void clear ()
+        {
+            _parts = null;
+            _text = null;
+        }
+
+        /**
+         * Replaces any nested fragments that are not elements with their contents, merging
+         * adjacent text.
+         */
+        public void inline ()
+        {
+            flushText();
+            if (_parts == null) {
+                return;
+            }
+            ArrayList<Object> oparts = _parts;
+            _parts = null;
+            for (Object part : oparts) {
+                if (part instanceof String) {
+                    append((String)part);
+                } else if (part instanceof Element) {
+                    add((Element)part);
+                } else {
+                    Fragment fragment = (Fragment)part;
+                    fragment.flushText();
+                    if (fragment._parts != null) {
+                        for (Object fpart : fragment._parts) {
+                            if (fpart instanceof String) {
+                                append((String)fpart);
+                            } else {
+                                add((Fragment)fpart);
+                            }
+                        }
+                    }
+                }
+            }
+            flushText();
+        }
+
+        /**
+         * Writes the fragment to the specified writer.
+         */
+        public void write (Writer writer)
+            throws IOException
+        {
+            flushText();
+            if (_parts != null) {
+                for (Object part : _parts) {
+                    if (part instanceof String) {
+                        writer.write((String)part);
+                    } else {
+                        ((Fragment)part).write(writer);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the builder for text being appended to the fragment.
+         */
+        protected StringBuilder text ()
+        {
+            if (_text == null) {
+                _text = new StringBuilder();
+            }
+            return _text;
+        }
+
+        /**
+         * Moves any pending text into the list of parts.
+         */
+        protected void flushText ()
+        {
+            if (_text == null) {
+                return;
+            }
+            if (_parts == null) {
+                _parts = new ArrayList<Object>(1);
+            }
+            _parts.add(_text.toString());
+            _text = null;
+        }
+
+        /** The strings and nested fragments that make up the fragment. */
+        protected ArrayList<Object> _parts;
+
+        /** Text appended since the last part was added. */
+        protected StringBuilder _text;
     }
 
     /**
-     * Appends a newline to the current element.
+     * The contents of an object element, preceded by a start tag whose attributes may change
+     * after the element is written.
      */
-    protected void appendln ()
+    protected static class Element extends Fragment
     {
-        _element.appendChild(_document.createTextNode("\n"));
+        /** The class attribute, if any. */
+        public String cclass;
+
+        /** The enum class attribute, if any. */
+        public String eclass;
+
+        /** The depth attribute, or -1 for none. */
+        public int depth = -1;
+
+        /** The id attribute, or zero for none. */
+        public int id;
+
+        public Element (String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public void write (Writer writer)
+            throws IOException
+        {
+            // attributes are written in alphabetical order, as by the DOM serializer
+            Fragment tag = new Fragment().append('<').append(_name);
+            if (cclass != null) {
+                tag.append(" class=\"").appendEscaped(cclass, true).append('"');
+            }
+            if (depth != -1) {
+                tag.append(" depth=\"").append(Integer.toString(depth)).append('"');
+            }
+            if (eclass != null) {
+                tag.append(" eclass=\"").appendEscaped(eclass, true).append('"');
+            }
+            if (id != 0) {
+                tag.append(" id=\"").append(Integer.toString(id)).append('"');
+            }
+            tag.append('>').write(writer);
+            super.write(writer);
+        }
+
+        /** The element name. */
+        protected String _name;
     }
 
     /** The output stream. */
     protected OutputStream _out;
 
-    /** The document under construction. */
-    protected Document _document;
+    /** The document, or <code>null</code> if no object has been written. */
+    protected Fragment _document;
 
-    /** The element corresponding to the current object. */
-    protected Element _element;
+    /** The fragment to which we are currently writing. */
+    protected Fragment _fragment;
+
+    /** The fragments containing the fields of the current object, mapped by name. */
+    protected HashMap<String, Fragment> _fields;
 
     /** The current indentation string. */
     protected String _indent = "";
 
-    /** Maps exported objects to their corresponding elements. */
+    /** Maps objects written to their elements. */
     protected IdentityHashMap<Object, Element> _elements = new IdentityHashMap<Object, Element>();
+
+    /** The depths of the objects currently being written. */
     protected IdentityHashMap<Object, Integer> _depths = new IdentityHashMap<Object, Integer>();
 
     /** The last object id assigned. */
@@ -22,7 +22,6 @@
 // INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
 // LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
 // SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
-
 package com.threerings.export;
 
 import java.lang.reflect.Array;
@@ -31,19 +30,18 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.EnumSet;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.Text;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
@@ -52,7 +50,6 @@ import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
 
 import com.threerings.util.ReflectionUtil;
@@ -60,7 +57,10 @@ import com.threerings.util.ReflectionUtil;
 import static com.threerings.export.Log.log;
 
 /**
- * Imports from the XML format generated by {@link XMLExporter}.
+ * Imports from the XML format generated by {@link XMLExporter}.  The input is read with a
+ * streaming (StAX) reader: the fields of each object are consumed from the stream as they are
+ * requested, and only the elements that must be skipped over to reach a requested field (because
+ * fields are read in a different order than they were written) are held in memory.
  */
 public class XMLImporter extends Importer
 {
@@ -76,38 +76,56 @@ public class XMLImporter extends Importer
     public Object readObject ()
         throws IOException
     {
-        Node first;
-        if (_document == null) {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            try {
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                _document = builder.parse(_in);
-            } catch (Exception e) {
-                throw new IOException("Failed to parse input [error=" + e + "].");
-            }
-            Element top = _document.getDocumentElement();
-            if (!top.getTagName().equals("java")) {
-                throw new IOException("Invalid top-level element [name=" +
-                    top.getTagName() + "].");
-            }
-            String vstr = top.getAttribute("version");
-            if (!vstr.equals(XMLExporter.VERSION)) {
-                throw new IOException("Invalid version [version=" + vstr + ", expected=" +
-                    XMLExporter.VERSION + "].");
+        try {
+            if (_reader == null) {
+                XMLInputFactory factory = XMLInputFactory.newInstance();
+                if (factory.isPropertySupported(REPORT_CDATA)) {
+                    // distinguish CDATA sections from text, as the DOM does
+                    factory.setProperty(REPORT_CDATA, Boolean.TRUE);
+                }
+                _reader = factory.createXMLStreamReader(_in);
+                _reader.nextTag();
+                String tag = _reader.getLocalName();
+                if (!tag.equals("java")) {
+                    throw new IOException("Invalid top-level element [name=" + tag + "].");
+                }
+                String vstr = getAttribute(_reader, "version");
+                if (!vstr.equals(XMLExporter.VERSION)) {
+                    throw new IOException("Invalid version [version=" + vstr + ", expected=" +
+                        XMLExporter.VERSION + "].");
+                }
+                String cstr = getAttribute(_reader, "class");
+                if (!cstr.equals(getClass().getName())) {
+                    throw new IOException("Invalid importer class [class=" + cstr +
+                        ", expected=" + getClass().getName() + "].");
+                }
             }
-            String cstr = top.getAttribute("class");
-            if (!cstr.equals(getClass().getName())) {
-                throw new IOException("Invalid importer class [class=" + cstr + ", expected=" +
-                    getClass().getName() + "].");
+            if ((_element = nextObject()) == null) {
+                throw new EOFException();
             }
-            first = top.getFirstChild();
-        } else {
-            first = (_element == null) ? null : _element.getNextSibling();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse input [error=" + e + "].");
         }
-        if ((_element = findElement(first, "object")) == null) {
-            throw new EOFException();
+        try {
+            return read(_element, Object.class);
+        } finally {
+            _element.finish();
+        }
+    }
+
+    @Override
+    public void defaultReadFields ()
+        throws IOException
+    {
+        if (_marshaller == null) {
+            throw new IllegalStateException("Not invoking a custom readFields method.");
+        }
+        String[] oorder = _element.setFieldOrder(_marshaller.getFieldNames());
+        try {
+            super.defaultReadFields();
+        } finally {
+            _element.setFieldOrder(oorder);
         }
-        return read(_element, Object.class);
     }
 
     @Override
@@ -208,20 +226,50 @@ public class XMLImporter extends Importer
     public <T> T read (String name, T defvalue, Class<T> clazz)
         throws IOException
     {
-        Element child = findElement(_element.getFirstChild(), name);
+        Element child = _element.getChild(name);
         if (child == null) {
             return defvalue;
         }
-        return clazz.cast(read(child, clazz));
+        if (child.wasRead()) {
+            // the element was streamed past; we can only return the value it produced
+            return clazz.cast(child.getValue());
+        }
+        Object value = read(child, clazz);
+        _element.noteRead(child, value);
+        return clazz.cast(value);
     }
 
     @Override
     public void close ()
         throws IOException
     {
+        if (_reader != null) {
+            try {
+                _reader.close();
+            } catch (XMLStreamException e) {
+                log.warning("Failed to close reader.", e);
+            }
+        }
         _in.close();
     }
 
+    @Override
+    protected void readFields (Exportable object)
+        throws IOException
+    {
+        ObjectMarshaller marshaller = ObjectMarshaller.getObjectMarshaller(object.getClass());
+        if (marshaller.hasCustomReader()) {
+            super.readFields(object);
+            return;
+        }
+        String[] oorder = _element.setFieldOrder(marshaller.getFieldNames());
+        try {
+            super.readFields(object);
+        } finally {
+            _element.setFieldOrder(oorder);
+        }
+    }
+
     /**
      * Reads an object of the supplied type from the given element.
      */
@@ -234,7 +282,7 @@ public class XMLImporter extends Importer
             return _depths.get(rdepth);
         } else if (ref.length() > 0) {
             return _objects.get(ref);
-        } else if (element.getFirstChild() == null) {
+        } else if (!element.hasContent()) {
             return null;
         } else {
             return readValue(element, clazz);
@@ -293,7 +341,17 @@ public class XMLImporter extends Importer
             Object value;
             boolean wasRead = false;
             if (cclazz.isArray()) {
-                value = Array.newInstance(cclazz.getComponentType(), countEntries());
+                Class<?> ctype = cclazz.getComponentType();
+                if (element.isStreaming() && depth.length() == 0 && !ctype.isPrimitive()) {
+                    // nothing within the array can refer to it, so we can stream the entries
+                    // into a list and create the array once we know its length
+                    List<Object> list = readEntries(Lists.newArrayList(), ctype);
+                    value = list.toArray((Object[])Array.newInstance(ctype, list.size()));
+                    wasRead = true;
+                } else {
+                    element.buffer();
+                    value = Array.newInstance(ctype, countEntries());
+                }
 
             } else if (cclazz == ImmutableList.class) {
                 value = ImmutableList.copyOf(readEntries(Lists.newArrayList()));
@@ -382,13 +440,13 @@ public class XMLImporter extends Importer
     }
 
     /**
-     * Returns the number of entries under the current element.
+     * Returns the number of entries under the current (buffered) element.
      */
     protected int countEntries ()
     {
         int count = 0;
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals("entry")) {
+        for (Element child : _element.getChildren()) {
+            if (child.getName().equals("entry")) {
                 count++;
             }
         }
@@ -402,13 +460,29 @@ public class XMLImporter extends Importer
         throws IOException
     {
         int idx = 0;
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals("entry")) {
-                array[idx++] = read((Element)node, cclazz);
+        for (Element child; (child = _element.nextChild()) != null; ) {
+            if (child.getName().equals("entry")) {
+                array[idx++] = read(child, cclazz);
             }
         }
     }
 
+    /**
+     * Populates the supplied list with the entries under the current element.
+     *
+     * @return a reference to the list passed, for chaining.
+     */
+    protected List<Object> readEntries (List<Object> list, Class<?> cclazz)
+        throws IOException
+    {
+        for (Element child; (child = _element.nextChild()) != null; ) {
+            if (child.getName().equals("entry")) {
+                list.add(read(child, cclazz));
+            }
+        }
+        return list;
+    }
+
     /**
      * Populates the supplied collection with the entries under the current element.
      *
@@ -417,9 +491,9 @@ public class XMLImporter extends Importer
     protected Collection<Object> readEntries (Collection<Object> collection)
         throws IOException
     {
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals("entry")) {
-                collection.add(read((Element)node, Object.class));
+        for (Element child; (child = _element.nextChild()) != null; ) {
+            if (child.getName().equals("entry")) {
+                collection.add(read(child, Object.class));
             }
         }
         return collection;
@@ -433,15 +507,17 @@ public class XMLImporter extends Importer
     protected Multiset<Object> readEntries (Multiset<Object> multiset)
         throws IOException
     {
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals("element")) {
-                Object element = read((Element)node, Object.class);
-                for (node = node.getNextSibling(); node != null; node = node.getNextSibling()) {
-                    if (node instanceof Element && node.getNodeName().equals("count")) {
-                        multiset.setCount(element, (Integer)read((Element)node, Integer.class));
-                        break;
-                    }
-                }
+        Object element = null;
+        boolean hasElement = false;
+        for (Element child; (child = _element.nextChild()) != null; ) {
+            String name = child.getName();
+            if (name.equals("element")) {
+                element = read(child, Object.class);
+                hasElement = true;
+
+            } else if (name.equals("count") && hasElement) {
+                multiset.setCount(element, (Integer)read(child, Integer.class));
+                hasElement = false;
             }
         }
         return multiset;
@@ -455,15 +531,17 @@ public class XMLImporter extends Importer
     protected Map<Object, Object> readEntries (Map<Object, Object> map)
         throws IOException
     {
-        for (Node node = _element.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals("key")) {
-                Object key = read((Element)node, Object.class);
-                for (node = node.getNextSibling(); node != null; node = node.getNextSibling()) {
-                    if (node instanceof Element && node.getNodeName().equals("value")) {
-                        map.put(key, read((Element)node, Object.class));
-                        break;
-                    }
-                }
+        Object key = null;
+        boolean hasKey = false;
+        for (Element child; (child = _element.nextChild()) != null; ) {
+            String name = child.getName();
+            if (name.equals("key")) {
+                key = read(child, Object.class);
+                hasKey = true;
+
+            } else if (name.equals("value") && hasKey) {
+                map.put(key, read(child, Object.class));
+                hasKey = false;
             }
         }
         return map;
@@ -473,37 +551,568 @@ public class XMLImporter extends Importer
      * For simple text fields, retrieves the value from a child element.
      */
     protected String getValue (String name)
+        throws IOException
     {
-        Element child = findElement(_element.getFirstChild(), name);
+        Element child = _element.getChild(name);
         if (child == null) {
             return null;
         }
-        for (Node node = child.getFirstChild(); node != null; node = node.getNextSibling()) {
-            if (node instanceof Text) {
-                return node.getNodeValue();
+        _element.noteRead(child, null);
+        return child.getText();
+    }
+
+    /**
+     * Advances to the next top-level object element.
+     *
+     * @return the object element, or <code>null</code> if there are no more objects.
+     */
+    protected Element nextObject ()
+        throws IOException, XMLStreamException
+    {
+        int depth = 1;
+        while (_reader.hasNext()) {
+            int event = _reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1 && _reader.getLocalName().equals("object")) {
+                    return new Element(true);
+                }
+                depth++;
+
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (--depth == 0) {
+                    break;
+                }
             }
         }
         return null;
     }
 
     /**
-     * Finds the first element in the sibling chain with the given name.
+     * Returns the value of the named attribute at the reader's current position, or the empty
+     * string if the attribute is not present.
+     */
+    protected static String getAttribute (XMLStreamReader reader, String name)
+    {
+        String value = reader.getAttributeValue(null, name);
+        return (value == null) ? "" : value;
+    }
+
+    /**
+     * Returns the index of the specified name in the given array, or -1 if not present.
      */
-    protected static Element findElement (Node first, String name)
+    protected static int indexOf (String[] names, String name)
     {
-        for (Node node = first; node != null; node = node.getNextSibling()) {
-            if (node instanceof Element && node.getNodeName().equals(name)) {
-                return (Element)node;
+        for (int ii = 0; ii < names.length; ii++) {
+            if (names[ii].equals(name)) {
+                return ii;
             }
         }
-        return null;
+        return -1;
+    }
+
+    /**
+     * A parsed element.  Streaming elements read their children from the stream on demand;
+     * buffered elements (those skipped over while looking for a field, and arrays that must be
+     * counted before they are read) hold all of their children in memory.
+     */
+    protected class Element
+    {
+        /**
+         * Creates a new element from the start tag at the reader's current position.
+         *
+         * @param streaming if true, read only up to the first child element; otherwise, read the
+         * entire element (leaving the reader positioned at its end tag).
+         */
+        public Element (boolean streaming)
+            throws IOException
+        {
+            _name = _reader.getLocalName();
+            int count = _reader.getAttributeCount();
+            if (count > 0) {
+                _attributes = new String[count * 2];
+                for (int ii = 0; ii < count; ii++) {
+                    _attributes[ii * 2] = _reader.getAttributeLocalName(ii);
+                    _attributes[ii * 2 + 1] = _reader.getAttributeValue(ii);
+                }
+            }
+            _streaming = streaming;
+            readText();
+            if (!streaming) {
+                try {
+                    readChildren();
+                } catch (XMLStreamException e) {
+                    throw new IOException("Failed to parse input [error=" + e + "].");
+                }
+            }
+        }
+
+        /**
+         * Returns the name of the element.
+         */
+        public String getName ()
+        {
+            return _name;
+        }
+
+        /**
+         * Returns the value of the named attribute, or the empty string if not present.
+         */
+        public String getAttribute (String name)
+        {
+            if (_attributes != null) {
+                for (int ii = 0; ii < _attributes.length; ii += 2) {
+                    if (_attributes[ii].equals(name)) {
+                        return _attributes[ii + 1];
+                    }
+                }
+            }
+            return "";
+        }
+
+        /**
+         * Determines whether the element had any content (text, comments, or children).
+         */
+        public boolean hasContent ()
+        {
+            return _hasContent;
+        }
+
+        /**
+         * Returns the first text node of the element, or <code>null</code> if it has none.
+         */
+        public String getText ()
+        {
+            return _text;
+        }
+
+        /**
+         * Returns the concatenated text of the element, or the empty string if it has none.
+         */
+        public String getTextContent ()
+        {
+            return (_textContent == null) ? "" : _textContent;
+        }
+
+        /**
+         * Checks whether the element's children are being read from the stream.
+         */
+        public boolean isStreaming ()
+        {
+            return _streaming;
+        }
+
+        /**
+         * Checks whether this element has been read by name from a streaming parent, in which
+         * case only the value it produced remains.
+         */
+        public boolean wasRead ()
+        {
+            return _wasRead;
+        }
+
+        /**
+         * Returns the value produced by this element, if it {@link #wasRead}.
+         */
+        public Object getValue ()
+        {
+            return _value;
+        }
+
+        /**
+         * Returns the child elements of a buffered element.
+         */
+        public List<Element> getChildren ()
+        {
+            return (_children == null) ? Collections.<Element>emptyList() : _children;
+        }
+
+        /**
+         * Sets the order in which the fields being read were written by default, allowing us to
+         * determine that a field is absent without reading ahead.
+         *
+         * @return the previous order.
+         */
+        public String[] setFieldOrder (String[] order)
+        {
+            String[] oorder = _order;
+            _order = order;
+            _orderSeen = false;
+            return oorder;
+        }
+
+        /**
+         * Returns the first child element with the given name, or <code>null</code> if none.
+         */
+        public Element getChild (String name)
+            throws IOException
+        {
+            Element child = find(_children, name);
+            if (child != null || !_streaming) {
+                return child;
+            }
+            if ((child = find(_read, name)) != null) {
+                return child;
+            }
+            try {
+                finishCurrent();
+                while (_atChild) {
+                    String next = _reader.getLocalName();
+                    if (next.equals(name)) {
+                        noteOrdered(next);
+                        _atChild = false;
+                        return (_current = new Element(true));
+                    }
+                    if (isAbsent(name, next)) {
+                        break;
+                    }
+                    // hold on to the skipped element in case it is requested later
+                    noteOrdered(next);
+                    _atChild = false;
+                    if (_children == null) {
+                        _children = new ArrayList<Element>(4);
+                    }
+                    _children.add(new Element(false));
+                    nextChildTag();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to parse input [error=" + e + "].");
+            }
+            if (_order != null && _atChild) {
+                if (_missed == null) {
+                    _missed = new ArrayList<String>(2);
+                }
+                _missed.add(name);
+            }
+            return null;
+        }
+
+        /**
+         * Returns the next child element, or <code>null</code> if there are no more.
+         */
+        public Element nextChild ()
+            throws IOException
+        {
+            if (!_streaming) {
+                return (_children != null && _index < _children.size()) ?
+                    _children.get(_index++) : null;
+            }
+            if (_children != null && !_children.isEmpty()) {
+                return _children.remove(0);
+            }
+            try {
+                finishCurrent();
+                if (!_atChild) {
+                    return null;
+                }
+                _atChild = false;
+                return (_current = new Element(true));
+
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to parse input [error=" + e + "].");
+            }
+        }
+
+        /**
+         * Notes that the specified child (returned from {@link #getChild}) has been read,
+         * producing the given value.
+         */
+        public void noteRead (Element child, Object value)
+            throws IOException
+        {
+            if (!_streaming || child._wasRead) {
+                return;
+            }
+            child.finish();
+            if (_children != null) {
+                _children.remove(child);
+            }
+            child._wasRead = true;
+            child._value = value;
+            child._attributes = null;
+            child._children = child._read = null;
+            if (_read == null) {
+                _read = new ArrayList<Element>(4);
+            }
+            _read.add(child);
+        }
+
+        /**
+         * Reads the rest of a streaming element into memory.
+         */
+        public void buffer ()
+            throws IOException
+        {
+            if (!_streaming) {
+                return;
+            }
+            try {
+                finishCurrent();
+                readChildren();
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to parse input [error=" + e + "].");
+            }
+            _streaming = false;
+            _index = 0;
+        }
+
+        /**
+         * Skips any unread content of a streaming element, leaving the reader positioned at its
+         * end tag.
+         */
+        public void finish ()
+            throws IOException
+        {
+            if (!_streaming) {
+                return;
+            }
+            try {
+                finishCurrent();
+                while (_atChild) {
+                    noteSkipped(_reader.getLocalName());
+                    int depth = 1;
+                    while (depth > 0) {
+                        int event = _reader.next();
+                        if (event == XMLStreamConstants.START_ELEMENT) {
+                            depth++;
+                        } else if (event == XMLStreamConstants.END_ELEMENT) {
+                            depth--;
+                        }
+                    }
+                    nextChildTag();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to parse input [error=" + e + "].");
+            }
+            if (_children != null) {
+                for (Element child : _children) {
+                    noteSkipped(child._name);
+                }
+                _children = null;
+            }
+            _streaming = false;
+        }
+
+        /**
+         * Reads the text (and comments) preceding the first child element or the end tag,
+         * leaving the reader positioned at one or the other.
+         */
+        protected void readText ()
+            throws IOException
+        {
+            StringBuilder first = null, all = null;
+            boolean inFirst = true;
+            int last = -1;
+            try {
+                while (true) {
+                    int event = _reader.next();
+                    switch (event) {
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                        case XMLStreamConstants.CDATA:
+                            // as in the DOM, each CDATA section and each run of character data
+                            // is a separate text node
+                            _hasContent = true;
+                            if (first != null && (event == XMLStreamConstants.CDATA ||
+                                    last != XMLStreamConstants.CHARACTERS)) {
+                                inFirst = false;
+                            }
+                            if (all == null) {
+                                first = new StringBuilder();
+                                all = new StringBuilder();
+                            }
+                            if (inFirst) {
+                                first.append(_reader.getTextCharacters(),
+                                    _reader.getTextStart(), _reader.getTextLength());
+                            }
+                            all.append(_reader.getTextCharacters(),
+                                _reader.getTextStart(), _reader.getTextLength());
+                            last = (event == XMLStreamConstants.CDATA) ?
+                                event : XMLStreamConstants.CHARACTERS;
+                            break;
+
+                        case XMLStreamConstants.COMMENT:
+                        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                            _hasContent = true;
+                            last = event;
+                            break;
+
+                        case XMLStreamConstants.START_ELEMENT:
+                            // text is only significant for elements without children
+                            _hasContent = _atChild = true;
+                            return;
+
+                        case XMLStreamConstants.END_ELEMENT:
+                            if (all != null) {
+                                _text = first.toString();
+                                _textContent = all.toString();
+                            }
+                            return;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to parse input [error=" + e + "].");
+            }
+        }
+
+        /**
+         * Reads the remaining children into memory, leaving the reader positioned at the end tag.
+         */
+        protected void readChildren ()
+            throws IOException, XMLStreamException
+        {
+            while (_atChild) {
+                _atChild = false;
+                if (_children == null) {
+                    _children = new ArrayList<Element>(4);
+                }
+                _children.add(new Element(false));
+                nextChildTag();
+            }
+        }
+
+        /**
+         * Finishes the child most recently returned from the stream, if any, and advances to the
+         * next child's start tag or our end tag.
+         */
+        protected void finishCurrent ()
+            throws IOException, XMLStreamException
+        {
+            if (_current != null) {
+                _current.finish();
+                _current = null;
+                nextChildTag();
+            }
+        }
+
+        /**
+         * Advances the reader to the start tag of the next child or to our end tag.
+         */
+        protected void nextChildTag ()
+            throws XMLStreamException
+        {
+            while (true) {
+                int event = _reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    _atChild = true;
+                    return;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    _atChild = false;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Determines, using the field order (if known), whether the named field is absent given
+         * that the next child has the specified name.
+         */
+        protected boolean isAbsent (String name, String next)
+        {
+            if (_order == null) {
+                return false;
+            }
+            int idx = indexOf(_order, name);
+            int nidx = indexOf(_order, next);
+            if (nidx == -1) {
+                // the default fields are written together, so once we've passed one of them,
+                // any other element marks the end of the group
+                return _orderSeen;
+            }
+            return idx != -1 && nidx > idx;
+        }
+
+        /**
+         * Notes that we've reached a child with the specified name.
+         */
+        protected void noteOrdered (String name)
+        {
+            if (_order != null && indexOf(_order, name) != -1) {
+                _orderSeen = true;
+            }
+        }
+
+        /**
+         * Notes that a child with the specified name was never read, warning if it was one that
+         * we determined to be absent.
+         */
+        protected void noteSkipped (String name)
+        {
+            if (_missed != null && _missed.contains(name)) {
+                log.warning("Field was read out of order; value ignored.",
+                    "element", _name, "field", name);
+            }
+        }
+
+        /**
+         * Finds the first element in the list with the given name.
+         */
+        protected Element find (List<Element> elements, String name)
+        {
+            if (elements != null) {
+                for (int ii = 0, nn = elements.size(); ii < nn; ii++) {
+                    Element element = elements.get(ii);
+                    if (element._name.equals(name)) {
+                        return element;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /** The element name. */
+        protected String _name;
+
+        /** The attribute names and values, interleaved. */
+        protected String[] _attributes;
+
+        /** The first text node of the element, if it has no children. */
+        protected String _text;
+
+        /** The concatenated text of the element, if it has no children. */
+        protected String _textContent;
+
+        /** Whether or not the element had any content. */
+        protected boolean _hasContent;
+
+        /** Whether or not the element's remaining children are read from the stream. */
+        protected boolean _streaming;
+
+        /** For streaming elements, whether the reader is positioned at a child's start tag. */
+        protected boolean _atChild;
+
+        /** The buffered child elements (for streaming elements, those skipped over). */
+        protected ArrayList<Element> _children;
+
+        /** The index of the next child to return from a buffered element. */
+        protected int _index;
+
+        /** The child most recently returned from the stream. */
+        protected Element _current;
+
+        /** The children of a streaming element that have been read by name. */
+        protected ArrayList<Element> _read;
+
+        /** Whether this element has been read by name from a streaming parent. */
+        protected boolean _wasRead;
+
+        /** The value read from this element, if {@link #_wasRead}. */
+        protected Object _value;
+
+        /** The order in which the fields being read were written, if known. */
+        protected String[] _order;
+
+        /** Whether we have reached one of the fields in {@link #_order}. */
+        protected boolean _orderSeen;
+
+        /** The names of fields determined to be absent using {@link #_order}. */
+        protected ArrayList<String> _missed;
     }
 
     /** The source stream. */
     protected InputStream _in;
 
-    /** The parsed XML document. */
-    protected Document _document;
+    /** The reader for the source stream. */
+    protected XMLStreamReader _reader;
 
     /** The element associated with the current object. */
     protected Element _element;
@@ -511,4 +1120,8 @@ public class XMLImporter extends Importer
     /** Mappings from ids to referenced objects. */
     protected HashMap<String, Object> _objects = new HashMap<String, Object>();
     protected HashMap<String, Object> _depths = new HashMap<String, Object>();
+
+    /** The (JDK) reader property that causes CDATA sections to be reported as such. */
+    protected static final String REPORT_CDATA =
+        "http://java.sun.com/xml/stream/properties/report-cdata-event";
 }
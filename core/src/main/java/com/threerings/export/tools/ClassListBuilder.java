@@ -0,0 +1,177 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.export.tools;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.tools.ant.DirectoryScanner;
+
+import com.threerings.export.BinaryImporter;
+import com.threerings.export.Importer;
+import com.threerings.export.ObjectMarshaller;
+import com.threerings.export.XMLImporter;
+
+import static com.threerings.export.Log.log;
+
+/**
+ * Loads a set of export files (configs, scenes, etc.) and records the classes that were
+ * marshalled in the process.  Writes a warm-up manifest for
+ * {@link com.threerings.util.WarmupUtil} and a class list suitable for creating a JDK class data
+ * sharing archive (-XX:SharedClassListFile).
+ */
+public class ClassListBuilder
+{
+    /**
+     * Program entry point.
+     */
+    public static void main (String[] args)
+        throws Exception
+    {
+        if (args.length >= 3) {
+            String[] patterns = new String[args.length - 2];
+            System.arraycopy(args, 2, patterns, 0, patterns.length);
+            build(args[0], args[1], patterns);
+        } else {
+            System.err.println(
+                "Usage: ClassListBuilder <manifest file> <class list file> <file pattern> ...");
+        }
+    }
+
+    /**
+     * Loads the files identified by the given patterns and writes the manifest and class list.
+     */
+    public static void build (String manifest, String classlist, String... patterns)
+        throws IOException
+    {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(".");
+        scanner.setIncludes(patterns);
+        scanner.scan();
+        int count = 0;
+        for (String source : scanner.getIncludedFiles()) {
+            try {
+                load(source);
+                count++;
+            } catch (Exception e) {
+                log.warning("Error loading file.", "file", source, e);
+            }
+        }
+        Set<Class<?>> classes = ObjectMarshaller.getMarshalledClasses();
+        writeManifest(manifest, classes);
+        writeClassList(classlist, classes);
+        log.info("Wrote class lists", "files", count, "classes", classes.size());
+    }
+
+    /**
+     * Reads all of the objects in the specified file, creating marshallers as we go.
+     */
+    protected static void load (String source)
+        throws IOException
+    {
+        FileInputStream fin = new FileInputStream(source);
+        Importer in = source.endsWith(".xml") ? new XMLImporter(fin) : new BinaryImporter(fin);
+        try {
+            while (true) {
+                in.readObject();
+            }
+        } catch (EOFException e) {
+            // no problem
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the warm-up manifest: the names of the marshalled classes, one per line.
+     */
+    protected static void writeManifest (String manifest, Collection<Class<?>> classes)
+        throws IOException
+    {
+        Set<String> names = new TreeSet<String>();
+        for (Class<?> clazz : classes) {
+            names.add(clazz.getName());
+        }
+        write(manifest, "Classes to warm up at startup", names);
+    }
+
+    /**
+     * Writes the class list: the marshalled classes along with their supertypes, using the
+     * internal (slash-separated) names expected by the JVM.
+     */
+    protected static void writeClassList (String classlist, Collection<Class<?>> classes)
+        throws IOException
+    {
+        Set<String> names = new TreeSet<String>();
+        for (Class<?> clazz : classes) {
+            addClass(clazz, names);
+        }
+        write(classlist, null, names);
+    }
+
+    /**
+     * Adds the internal name of the specified class and those of its supertypes to the set.
+     */
+    protected static void addClass (Class<?> clazz, Set<String> names)
+    {
+        if (clazz == null || clazz.isArray() || clazz.isPrimitive() ||
+                !names.add(clazz.getName().replace('.', '/'))) {
+            return;
+        }
+        addClass(clazz.getSuperclass(), names);
+        for (Class<?> iface : clazz.getInterfaces()) {
+            addClass(iface, names);
+        }
+    }
+
+    /**
+     * Writes the supplied names to the specified file, one per line.
+     *
+     * @param comment an optional comment to write on the first line.
+     */
+    protected static void write (String file, String comment, Collection<String> names)
+        throws IOException
+    {
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            if (comment != null) {
+                out.println("# " + comment);
+            }
+            for (String name : names) {
+                out.println(name);
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -112,11 +112,7 @@ public abstract class BooleanExpression extends DeepObject
         @Override
         public Evaluator createEvaluator (Scope scope)
         {
-            return new Evaluator() {
-                public boolean evaluate () {
-                    return value;
-                }
-            };
+            return new ConstantEvaluator(value);
         }
     }
 
@@ -169,6 +165,9 @@ public abstract class BooleanExpression extends DeepObject
         public Evaluator createEvaluator (Scope scope)
         {
             final Evaluator eval = operand.createEvaluator(scope);
+            if (eval.isConstant()) {
+                return new ConstantEvaluator(!eval.evaluate());
+            }
             return new Evaluator() {
                 public boolean evaluate () {
                     return !eval.evaluate();
@@ -199,8 +198,11 @@ public abstract class BooleanExpression extends DeepObject
         @Override
         public Evaluator createEvaluator (Scope scope)
         {
-            return createEvaluator(
-                firstOperand.createEvaluator(scope), secondOperand.createEvaluator(scope));
+            Evaluator eval1 = firstOperand.createEvaluator(scope);
+            Evaluator eval2 = secondOperand.createEvaluator(scope);
+            Evaluator result = createEvaluator(eval1, eval2);
+            return (eval1.isConstant() && eval2.isConstant()) ?
+                new ConstantEvaluator(result.evaluate()) : result;
         }
 
         @Override
@@ -296,8 +298,11 @@ public abstract class BooleanExpression extends DeepObject
         @Override
         public Evaluator createEvaluator (Scope scope)
         {
-            return createEvaluator(
-                firstOperand.createEvaluator(scope), secondOperand.createEvaluator(scope));
+            FloatExpression.Evaluator eval1 = firstOperand.createEvaluator(scope);
+            FloatExpression.Evaluator eval2 = secondOperand.createEvaluator(scope);
+            Evaluator result = createEvaluator(eval1, eval2);
+            return (eval1.isConstant() && eval2.isConstant()) ?
+                new ConstantEvaluator(result.evaluate()) : result;
         }
 
         @Override
@@ -441,6 +446,44 @@ public abstract class BooleanExpression extends DeepObject
          * Evaluates and returns the current value of the expression.
          */
         public abstract boolean evaluate ();
+
+        /**
+         * Checks whether this evaluator always returns the same value, in which case the
+         * evaluators of enclosing expressions may fold it.
+         */
+        public boolean isConstant ()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * An evaluator that always returns the same value.
+     */
+    public static class ConstantEvaluator extends Evaluator
+    {
+        /**
+         * Creates a new constant evaluator with the specified value.
+         */
+        public ConstantEvaluator (boolean value)
+        {
+            _value = value;
+        }
+
+        @Override
+        public boolean evaluate ()
+        {
+            return _value;
+        }
+
+        @Override
+        public boolean isConstant ()
+        {
+            return true;
+        }
+
+        /** The constant value. */
+        protected boolean _value;
     }
 
     /**
@@ -118,11 +118,7 @@ public abstract class FloatExpression extends DeepObject
         @Override
         public Evaluator createEvaluator (Scope scope)
         {
-            return new Evaluator() {
-                public float evaluate () {
-                    return value;
-                }
-            };
+            return new ConstantEvaluator(value);
         }
     }
 
@@ -198,7 +194,9 @@ public abstract class FloatExpression extends DeepObject
         @Override
         public Evaluator createEvaluator (Scope scope)
         {
-            return createEvaluator(operand.createEvaluator(scope));
+            Evaluator eval = operand.createEvaluator(scope);
+            Evaluator result = createEvaluator(eval);
+            return eval.isConstant() ? new ConstantEvaluator(result.evaluate()) : result;
         }
 
         @Override
@@ -393,8 +391,11 @@ public abstract class FloatExpression extends DeepObject
         @Override
         public Evaluator createEvaluator (Scope scope)
         {
-            return createEvaluator(
-                firstOperand.createEvaluator(scope), secondOperand.createEvaluator(scope));
+            Evaluator eval1 = firstOperand.createEvaluator(scope);
+            Evaluator eval2 = secondOperand.createEvaluator(scope);
+            Evaluator result = createEvaluator(eval1, eval2);
+            return (eval1.isConstant() && eval2.isConstant()) ?
+                new ConstantEvaluator(result.evaluate()) : result;
         }
 
         @Override
@@ -418,6 +419,14 @@ public abstract class FloatExpression extends DeepObject
         @Override
         protected Evaluator createEvaluator (final Evaluator eval1, final Evaluator eval2)
         {
+            if (eval2.isConstant()) {
+                final float value2 = eval2.evaluate();
+                return new Evaluator() {
+                    public float evaluate () {
+                        return eval1.evaluate() + value2;
+                    }
+                };
+            }
             return new Evaluator() {
                 public float evaluate () {
                     return eval1.evaluate() + eval2.evaluate();
@@ -434,6 +443,14 @@ public abstract class FloatExpression extends DeepObject
         @Override
         protected Evaluator createEvaluator (final Evaluator eval1, final Evaluator eval2)
         {
+            if (eval2.isConstant()) {
+                final float value2 = eval2.evaluate();
+                return new Evaluator() {
+                    public float evaluate () {
+                        return eval1.evaluate() - value2;
+                    }
+                };
+            }
             return new Evaluator() {
                 public float evaluate () {
                     return eval1.evaluate() - eval2.evaluate();
@@ -450,6 +467,21 @@ public abstract class FloatExpression extends DeepObject
         @Override
         protected Evaluator createEvaluator (final Evaluator eval1, final Evaluator eval2)
         {
+            if (eval1.isConstant()) {
+                final float value1 = eval1.evaluate();
+                return new Evaluator() {
+                    public float evaluate () {
+                        return value1 * eval2.evaluate();
+                    }
+                };
+            } else if (eval2.isConstant()) {
+                final float value2 = eval2.evaluate();
+                return new Evaluator() {
+                    public float evaluate () {
+                        return eval1.evaluate() * value2;
+                    }
+                };
+            }
             return new Evaluator() {
                 public float evaluate () {
                     return eval1.evaluate() * eval2.evaluate();
@@ -466,6 +498,14 @@ public abstract class FloatExpression extends DeepObject
         @Override
         protected Evaluator createEvaluator (final Evaluator eval1, final Evaluator eval2)
         {
+            if (eval2.isConstant()) {
+                final float value2 = eval2.evaluate();
+                return new Evaluator() {
+                    public float evaluate () {
+                        return eval1.evaluate() / value2;
+                    }
+                };
+            }
             return new Evaluator() {
                 public float evaluate () {
                     return eval1.evaluate() / eval2.evaluate();
@@ -531,6 +571,44 @@ public abstract class FloatExpression extends DeepObject
          * Evaluates and returns the current value of the expression.
          */
         public abstract float evaluate ();
+
+        /**
+         * Checks whether this evaluator always returns the same value, in which case the
+         * evaluators of enclosing expressions may fold or specialize on it.
+         */
+        public boolean isConstant ()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * An evaluator that always returns the same value.
+     */
+    public static class ConstantEvaluator extends Evaluator
+    {
+        /**
+         * Creates a new constant evaluator with the specified value.
+         */
+        public ConstantEvaluator (float value)
+        {
+            _value = value;
+        }
+
+        @Override
+        public float evaluate ()
+        {
+            return _value;
+        }
+
+        @Override
+        public boolean isConstant ()
+        {
+            return true;
+        }
+
+        /** The constant value. */
+        protected float _value;
     }
 
     /**
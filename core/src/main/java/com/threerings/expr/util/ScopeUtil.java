@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
@@ -427,6 +428,16 @@ public class ScopeUtil
         return null;
     }
 
+    /**
+     * Precomputes the cached bound fields and scoped members of the specified class so that
+     * the first call to {@link #updateBound} or {@link #get} need not reflect on it.
+     */
+    public static void precompute (Class<?> clazz)
+    {
+        getBound(clazz);
+        getScoped(clazz);
+    }
+
     /**
      * Retrieves the list of the specified class's bound fields.
      */
@@ -434,7 +445,10 @@ public class ScopeUtil
     {
         Field[] fields = _bound.get(clazz);
         if (fields == null) {
-            _bound.put(clazz, fields = createBound(clazz));
+            Field[] existing = _bound.putIfAbsent(clazz, fields = createBound(clazz));
+            if (existing != null) {
+                fields = existing;
+            }
         }
         return fields;
     }
@@ -471,7 +485,10 @@ public class ScopeUtil
             members = Maps.newHashMap();
             populateScoped(clazz, members);
             members = ImmutableMap.copyOf(members);
-            _scoped.put(clazz, members);
+            Map<String, Member> existing = _scoped.putIfAbsent(clazz, members);
+            if (existing != null) {
+                members = existing;
+            }
         }
         return members;
     }
@@ -519,8 +536,9 @@ public class ScopeUtil
     }
 
     /** Cached bound fields. */
-    protected static Map<Class<?>, Field[]> _bound = Maps.newHashMap();
+    protected static final ConcurrentMap<Class<?>, Field[]> _bound = Maps.newConcurrentMap();
 
     /** Cached scoped members. */
-    protected static Map<Class<?>, Map<String, Member>> _scoped = Maps.newHashMap();
+    protected static final ConcurrentMap<Class<?>, Map<String, Member>> _scoped =
+        Maps.newConcurrentMap();
 }
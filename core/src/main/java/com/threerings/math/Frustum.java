@@ -34,6 +34,9 @@ public class Frustum
      * contains, respectively, the parameter. */
     public enum IntersectionType { NONE, INTERSECTS, CONTAINS };
 
+    /** A plane mask including all six planes. */
+    public static final int ALL_PLANES = 0x3F;
+
     /**
      * Creates an empty (invalid) frustum.
      */
@@ -212,31 +215,69 @@ public class Frustum
      * Checks whether the frustum intersects the specified box.
      */
     public IntersectionType getIntersectionType (Box box)
+    {
+        int mask = getIntersectionMask(box, ALL_PLANES, 0);
+        return (mask == -1) ? IntersectionType.NONE :
+            (mask == 0 ? IntersectionType.CONTAINS : IntersectionType.INTERSECTS);
+    }
+
+    /**
+     * Checks whether the frustum intersects the specified box, considering only a subset of its
+     * planes.  When testing a box contained in another box that has already been tested, only
+     * the planes that the outer box straddled need to be considered.
+     *
+     * @param mask the planes to consider (bit n set for plane n; see {@link #ALL_PLANES}).
+     * @param first the index of the plane to test first.  Using the plane that last rejected
+     * the box (see {@link #getRejectingPlane}) takes advantage of frame-to-frame coherence.
+     * @return -1 if the box lies entirely outside the frustum, otherwise the mask of planes
+     * (among those considered) that the box straddles, which is zero if the box lies inside
+     * all of them.
+     */
+    public int getIntersectionMask (Box box, int mask, int first)
     {
         // exit quickly in cases where the bounding boxes don't overlap (equivalent to a separating
         // axis test using the axes of the box)
+        _rejectingPlane = first;
         if (!_bounds.intersects(box)) {
-            return IntersectionType.NONE;
+            return -1;
         }
 
-        // consider each side of the frustum as a potential separating axis
-        int ccount = 0;
+        // consider each side of the frustum as a potential separating axis.  rather than
+        // checking all eight vertices, we only need the distances of the vertices nearest
+        // to and farthest from each plane
+        Vector3f min = box.getMinimumExtent(), max = box.getMaximumExtent();
+        int nmask = 0;
         for (int ii = 0; ii < 6; ii++) {
-            // determine how many vertices fall inside/outside the plane
-            int inside = 0;
-            Plane plane = _planes[ii];
-            for (int jj = 0; jj < 8; jj++) {
-                if (plane.getDistance(box.getVertex(jj, _vertex)) <= 0f) {
-                    inside++;
-                }
+            int idx = (first + ii) % 6, bit = 1 << idx;
+            if ((mask & bit) == 0) {
+                continue;
             }
-            if (inside == 0) {
-                return IntersectionType.NONE;
-            } else if (inside == 8) {
-                ccount++;
+            Plane plane = _planes[idx];
+            Vector3f normal = plane.getNormal();
+            float nx = normal.x, ny = normal.y, nz = normal.z;
+            float near = nx*(nx > 0f ? min.x : max.x) + ny*(ny > 0f ? min.y : max.y) +
+                nz*(nz > 0f ? min.z : max.z) + plane.constant;
+            if (near > 0f) {
+                _rejectingPlane = idx;
+                return -1;
+            }
+            float far = nx*(nx > 0f ? max.x : min.x) + ny*(ny > 0f ? max.y : min.y) +
+                nz*(nz > 0f ? max.z : min.z) + plane.constant;
+            if (far > 0f) {
+                nmask |= bit;
             }
         }
-        return (ccount == 6) ? IntersectionType.CONTAINS : IntersectionType.INTERSECTS;
+        return nmask;
+    }
+
+    /**
+     * Returns the index of the plane that rejected the box in the last call to
+     * {@link #getIntersectionMask} (or the first plane requested, if the box was rejected by the
+     * bounds or not rejected at all).
+     */
+    public int getRejectingPlane ()
+    {
+        return _rejectingPlane;
     }
 
     /**
@@ -278,6 +319,9 @@ public class Frustum
     /** The frustum's bounding box (as derived from the vertices). */
     protected Box _bounds = new Box();
 
+    /** The plane that rejected the box in the last intersection test. */
+    protected int _rejectingPlane;
+
     /** A working vertex. */
     protected static Vector3f _vertex = new Vector3f();
 }
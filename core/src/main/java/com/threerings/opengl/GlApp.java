@@ -33,6 +33,8 @@ import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
 
+import java.io.File;
+
 import java.nio.ByteBuffer;
 
 import org.lwjgl.BufferUtils;
@@ -42,6 +44,7 @@ import org.lwjgl.opengl.PixelFormat;
 import com.google.common.base.Objects;
 
 import com.samskivert.util.RunQueue;
+import com.samskivert.util.StringUtil;
 
 import com.threerings.config.ConfigManager;
 import com.threerings.editor.util.EditorContext;
@@ -57,6 +60,7 @@ import com.threerings.media.image.ColorPository;
 import com.threerings.resource.ResourceManager;
 import com.threerings.util.MessageManager;
 import com.threerings.util.ToolUtil;
+import com.threerings.util.WarmupUtil;
 
 import com.threerings.openal.ClipProvider;
 import com.threerings.openal.Listener;
@@ -72,6 +76,7 @@ import com.threerings.opengl.renderer.Renderer;
 import com.threerings.opengl.renderer.state.TransformState;
 import com.threerings.opengl.util.GlContext;
 import com.threerings.opengl.util.ImageCache;
+import com.threerings.opengl.util.ImageDiskCache;
 import com.threerings.opengl.util.ShaderCache;
 
 /**
@@ -90,6 +95,10 @@ public abstract class GlApp extends DynamicScope
         _soundmgr = SoundManager.createSoundManager(getRunQueue());
         _clipprov = new ResourceClipProvider(_rsrcmgr);
         _imgcache = new ImageCache(this, shouldCheckTimestamps());
+        File cacheDir = getImageCacheDirectory();
+        if (cacheDir != null) {
+            _imgcache.setDiskCache(new ImageDiskCache(cacheDir, IMAGE_CACHE_SIZE));
+        }
         _shadcache = new ShaderCache(this, shouldCheckTimestamps());
 
         // initialize our scoped fields
@@ -359,11 +368,24 @@ public abstract class GlApp extends DynamicScope
         return false;
     }
 
+    /**
+     * Returns the directory in which to store decoded images between runs, or null to disable
+     * the disk cache.  By default, we use a subdirectory of the application directory, if one
+     * was specified.
+     */
+    protected File getImageCacheDirectory ()
+    {
+        String appdir = System.getProperty("appdir");
+        return StringUtil.isBlank(appdir) ? null : new File(appdir, "imagecache");
+    }
+
     /**
      * Initializes the view once the OpenGL context is available.
      */
     protected void init ()
     {
+        // warm the class metadata caches in the background while the configs and scenes load
+        WarmupUtil.start();
         initRenderer();
         setCameraHandler(createCameraHandler());
 
@@ -585,4 +607,7 @@ public abstract class GlApp extends DynamicScope
     protected static final PixelFormat[] DEFAULT_PIXEL_FORMATS = {
         new PixelFormat(8, 16, 8), new PixelFormat(1, 16, 8),
         new PixelFormat(0, 16, 8), new PixelFormat(0, 8, 0) };
+
+    /** The maximum size of the image disk cache. */
+    protected static final long IMAGE_CACHE_SIZE = 256L * 1024L * 1024L;
 }
@@ -37,6 +37,7 @@ import com.samskivert.util.IntMaps;
 
 import com.threerings.opengl.renderer.Batch;
 import com.threerings.opengl.renderer.Renderer;
+import com.threerings.opengl.renderer.util.BatchSorter;
 import com.threerings.opengl.util.GlContext;
 
 import com.threerings.opengl.compositor.config.RenderQueueConfig;
@@ -237,9 +238,14 @@ public class RenderQueue
             }
         }
 
-        // sort each list
+        // sort each list, using our own sorter if the mode calls for one
+        RenderQueueConfig.SortMode mode = _config.sortMode;
+        if (mode != _sortMode) {
+            _sorter = mode.createSorter();
+            _sortMode = mode;
+        }
         for (int ii = 0, nn = _lists.size(); ii < nn; ii++) {
-            _config.sortMode.sort(_lists.get(ii));
+            mode.sort(_lists.get(ii), _sorter);
         }
     }
 
@@ -457,6 +463,12 @@ public class RenderQueue
     /** The queue configuration. */
     protected RenderQueueConfig _config;
 
+    /** The sort mode for which {@link #_sorter} was created. */
+    protected RenderQueueConfig.SortMode _sortMode;
+
+    /** The radix sorter for the current sort mode, if it uses one. */
+    protected BatchSorter _sorter;
+
     /** Maps priorities to batch lists. */
     protected HashIntMap<PriorityList> _priorities = IntMaps.newHashIntMap();
 
@@ -44,6 +44,7 @@ import com.threerings.opengl.compositor.RenderQueue;
 import com.threerings.opengl.gui.util.Rectangle;
 import com.threerings.opengl.renderer.Batch;
 import com.threerings.opengl.renderer.Renderer;
+import com.threerings.opengl.renderer.util.BatchSorter;
 import com.threerings.opengl.renderer.state.DepthState;
 import com.threerings.opengl.util.GlContext;
 
@@ -56,11 +57,7 @@ public class RenderQueueConfig extends ManagedConfig
     public enum SortMode
     {
         /** Leaves batches unsorted. */
-        NONE(null) {
-            public void sort (List<Batch> batches) {
-                // no-op
-            }
-        },
+        NONE(null),
 
         /** Sorts batches by state, then front-to-back. */
         BY_STATE(new Comparator<Batch>() {
@@ -82,14 +79,58 @@ public class RenderQueueConfig extends ManagedConfig
             public int compare (Batch b1, Batch b2) {
                 return Float.compare(b2.depth, b1.depth);
             }
-        });
+        }),
+
+        /** Sorts batches by packed state key, then front-to-back, using a radix sort. */
+        BY_STATE_RADIX(null) {
+            public BatchSorter createSorter () {
+                return new BatchSorter.ByState();
+            }
+        },
+
+        /** Sorts batches by depth, back-to-front, using a radix sort. */
+        BACK_TO_FRONT_RADIX(null) {
+            public BatchSorter createSorter () {
+                return new BatchSorter.BackToFront();
+            }
+        },
+
+        /** Sorts batches by depth, front-to-back, using a radix sort. */
+        FRONT_TO_BACK_RADIX(null) {
+            public BatchSorter createSorter () {
+                return new BatchSorter.FrontToBack();
+            }
+        };
 
         /**
          * Sorts the supplied list of batches.
          */
         public void sort (List<Batch> batches)
         {
-            QuickSort.sort(batches, _comparator);
+            sort(batches, createSorter());
+        }
+
+        /**
+         * Sorts the supplied list of batches.
+         *
+         * @param sorter the sorter obtained from {@link #createSorter}, if any.
+         */
+        public void sort (List<Batch> batches, BatchSorter sorter)
+        {
+            if (sorter != null) {
+                sorter.sort(batches);
+            } else if (_comparator != null) {
+                QuickSort.sort(batches, _comparator);
+            }
+        }
+
+        /**
+         * Creates the radix sorter used by this mode, if any.  Sorters hold working arrays, so
+         * callers that sort repeatedly (on a single thread) should create one and reuse it.
+         */
+        public BatchSorter createSorter ()
+        {
+            return null;
         }
 
         SortMode (Comparator<Batch> comparator)
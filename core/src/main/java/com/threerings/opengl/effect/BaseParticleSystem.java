@@ -553,38 +553,14 @@ public abstract class BaseParticleSystem extends Model.Implementation
             _parentWorldTransform.compose(_localTransform, _worldTransform);
         }
 
-        // the first non-zero elapsed interval triggers the warmup
-        if (!_warmed && elapsed > 0f) {
-            float remaining = _config.warmupTime;
-            while (remaining > 0f) {
-                float welapsed = Math.min(remaining, _config.warmupGranularity);
-                for (Layer layer : _layers) {
-                    layer.tick(welapsed);
-                }
-                remaining -= welapsed;
-            }
-            _warmed = true;
-        }
-
-        // reset the bounds
-        resetBounds();
-
-        // tick the layers (they will expand the bounds)
-        _completed = true;
-        for (Layer layer : _layers) {
-            _completed &= layer.tick(elapsed);
-        }
-
-        // update the bounds if necessary
-        if (!_bounds.equals(_nbounds)) {
-            ((Model)_parentScope).boundsWillChange(this);
-            _bounds.set(_nbounds);
-            ((Model)_parentScope).boundsDidChange(this);
-        }
-
-        // notify containing model if completed
-        if (_completed) {
-            ((Model)_parentScope).completed(this);
+        // tick the layers on a worker thread if the scene allows it, otherwise immediately
+        _elapsed = elapsed;
+        Scene scene = (elapsed > 0f) ? getDeferralScene() : null;
+        if (scene == null) {
+            tickLayers();
+            layersTicked();
+        } else {
+            scene.deferTick(_layerTicker, _layerMerger);
         }
     }
 
@@ -666,6 +642,72 @@ public abstract class BaseParticleSystem extends Model.Implementation
         return ((Model)_parentScope).getScene(this);
     }
 
+    /**
+     * Returns the scene to which we may defer the ticking of our layers, or null if they must be
+     * ticked immediately.  Layer ticks may only be deferred when our model is a top-level scene
+     * element (containing models read our bounds as soon as we've ticked) and the config doesn't
+     * disallow it.
+     */
+    protected Scene getDeferralScene ()
+    {
+        if (_config.serialTick) {
+            return null;
+        }
+        Scene scene = getScene();
+        return (scene != null && scene.isParallelTick() &&
+            ((Model)_parentScope).getParentScope() == scene) ? scene : null;
+    }
+
+    /**
+     * Ticks the layers (warming up first if necessary), expanding the new bounds.  This may be
+     * called from a worker thread, and so must not touch any state outside of the system.
+     */
+    protected void tickLayers ()
+    {
+        // the first non-zero elapsed interval triggers the warmup
+        float elapsed = _elapsed;
+        if (!_warmed && elapsed > 0f) {
+            float remaining = _config.warmupTime;
+            while (remaining > 0f) {
+                float welapsed = Math.min(remaining, _config.warmupGranularity);
+                for (Layer layer : _layers) {
+                    layer.tick(welapsed);
+                }
+                remaining -= welapsed;
+            }
+            _warmed = true;
+        }
+
+        // reset the bounds
+        resetBounds();
+
+        // tick the layers (they will expand the bounds)
+        boolean completed = true;
+        for (Layer layer : _layers) {
+            completed &= layer.tick(elapsed);
+        }
+        _completed = completed;
+    }
+
+    /**
+     * Applies the results of {@link #tickLayers} to the containing model.  Always called on the
+     * tick thread.
+     */
+    protected void layersTicked ()
+    {
+        // update the bounds if necessary
+        if (!_bounds.equals(_nbounds)) {
+            ((Model)_parentScope).boundsWillChange(this);
+            _bounds.set(_nbounds);
+            ((Model)_parentScope).boundsDidChange(this);
+        }
+
+        // notify containing model if completed
+        if (_completed) {
+            ((Model)_parentScope).completed(this);
+        }
+    }
+
     /**
      * Creates a new layer for the supplied config.
      */
@@ -735,6 +777,23 @@ public abstract class BaseParticleSystem extends Model.Implementation
     /** If true, the particle system has completed. */
     protected boolean _completed;
 
+    /** The elapsed time for the layer tick in progress. */
+    protected float _elapsed;
+
+    /** Ticks the layers (possibly on a worker thread). */
+    protected Runnable _layerTicker = new Runnable() {
+        public void run () {
+            tickLayers();
+        }
+    };
+
+    /** Applies the results of the layer tick. */
+    protected Runnable _layerMerger = new Runnable() {
+        public void run () {
+            layersTicked();
+        }
+    };
+
     /** Working vector. */
     protected static Vector3f _vector = new Vector3f();
 }
@@ -40,6 +40,7 @@ import com.threerings.opengl.effect.config.MetaParticleSystemConfig.Alignment;
 import com.threerings.opengl.model.Model;
 import com.threerings.opengl.compositor.RenderScheme;
 import com.threerings.opengl.renderer.state.ColorState;
+import com.threerings.opengl.scene.Scene;
 import com.threerings.opengl.util.GlContext;
 
 import static com.threerings.opengl.Log.log;
@@ -258,6 +259,13 @@ public class MetaParticleSystem extends BaseParticleSystem
         setConfig(ctx, config);
     }
 
+    @Override
+    protected Scene getDeferralScene ()
+    {
+        // our layers tick models of their own, which may notify the scene
+        return null;
+    }
+
     @Override
     protected BaseParticleSystem.Layer createLayer (BaseParticleSystemConfig.Layer config)
     {
@@ -189,6 +189,11 @@ public abstract class BaseParticleSystemConfig extends ModelConfig.Implementatio
     @Editable(min=0.0, step=0.01, hgroup="t")
     public float boundsExpansion;
 
+    /** If true, always tick the system on the scene's tick thread (for systems whose layers
+     * touch state shared with other elements). */
+    @Editable(hgroup="t")
+    public boolean serialTick;
+
     /** The amount of time to spend "warming up" the system on reset. */
     @Editable(min=0.0, step=0.01, hgroup="w")
     public float warmupTime;
@@ -495,7 +495,10 @@ public class Component
      */
     public void setAlpha (float alpha)
     {
-        _alpha = alpha;
+        if (_alpha != alpha) {
+            _alpha = alpha;
+            renderingChanged();
+        }
     }
 
     /**
@@ -694,6 +697,7 @@ public class Component
         if (_x != x || _y != y) {
             _x = x;
             _y = y;
+            renderingChanged();
         }
         if (_width != width || _height != height) {
             _width = width;
@@ -709,6 +713,7 @@ public class Component
     public void setOffset (Transform2D offset)
     {
         _offset = offset;
+        renderingChanged();
     }
 
     /**
@@ -1250,6 +1255,18 @@ public class Component
         return DEFAULT;
     }
 
+    /**
+     * Called when something affecting the component's appearance has changed without
+     * invalidating it, so that a retained window will rerecord its contents.
+     */
+    protected void renderingChanged ()
+    {
+        Window window = getWindow();
+        if (window != null) {
+            window.invalidateRetained();
+        }
+    }
+
     /**
      * Called when the component's state has changed.
      */
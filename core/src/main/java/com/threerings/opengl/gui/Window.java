@@ -25,6 +25,10 @@
 
 package com.threerings.opengl.gui;
 
+import org.lwjgl.opengl.GL11;
+
+import com.threerings.opengl.renderer.DisplayList;
+import com.threerings.opengl.renderer.Renderer;
 import com.threerings.opengl.util.GlContext;
 
 import com.threerings.opengl.gui.event.ActionEvent;
@@ -159,6 +163,76 @@ public class Window extends Container
         }
     }
 
+    /**
+     * Sets whether or not this window's rendering is retained.  A retained window records its
+     * rendering into a display list once it has remained unchanged for a frame, then simply calls
+     * the list until it is invalidated, its bounds or alpha change, or it is moved.  This is only
+     * appropriate for windows whose contents don't animate or otherwise change without being
+     * invalidated; {@link #invalidateRetained} may be called to force the list to be rerecorded.
+     */
+    public void setRetained (boolean retained)
+    {
+        if (_retained == retained) {
+            return;
+        }
+        _retained = retained;
+        invalidateRetained();
+        if (!retained && _list != null) {
+            _list.delete();
+            _list = null;
+        }
+    }
+
+    /**
+     * Checks whether this window's rendering is retained.
+     */
+    public boolean isRetained ()
+    {
+        return _retained;
+    }
+
+    /**
+     * Forces a retained window to rerecord its rendering.
+     */
+    public void invalidateRetained ()
+    {
+        _listValid = false;
+        _unchangedFrames = 0;
+    }
+
+    @Override // from Component
+    public void render (Renderer renderer)
+    {
+        if (!(_retained && _visible)) {
+            super.render(renderer);
+            return;
+        }
+        if (_listValid) {
+            _list.call();
+            renderer.invalidateStates();
+            return;
+        }
+        // wait a frame after any change before recording, so that any textures created lazily
+        // during rendering will be loaded outside of the list
+        if (_unchangedFrames++ < 1) {
+            super.render(renderer);
+            return;
+        }
+        if (_list == null) {
+            _list = new DisplayList(renderer);
+        }
+        // make sure the list sets all the state it relies upon
+        renderer.invalidateStates();
+        GL11.glNewList(_list.getId(), GL11.GL_COMPILE_AND_EXECUTE);
+        try {
+            super.render(renderer);
+        } finally {
+            GL11.glEndList();
+            renderer.invalidateStates();
+        }
+        _listValid = true;
+    }
+
     // documentation inherited from interface Comparable
     public int compareTo (Window other)
     {
@@ -176,6 +250,7 @@ public class Window extends Container
     public void invalidate ()
     {
         super.invalidate();
+        invalidateRetained();
 
         if (_root != null) {
             // when an invalidation call reaches an attached top-level window, let the root node
@@ -296,4 +371,16 @@ public class Window extends Container
 
     /** Used to associate this window with a parent window. */
     protected Window _parentWindow;
+
+    /** Whether or not this window's rendering is retained. */
+    protected boolean _retained;
+
+    /** The display list into which we record our rendering, if retained. */
+    protected DisplayList _list;
+
+    /** Whether or not the display list is up-to-date. */
+    protected boolean _listValid;
+
+    /** The number of frames we've been rendered since the last change. */
+    protected int _unchangedFrames;
 }
@@ -121,11 +121,15 @@ public class CharacterTextFactory extends TextFactory
      */
     public void render (Renderer renderer, String text, int x, int y, Color4f color)
     {
-        for (int ii = 0, nn = text.length(); ii < nn; ii++) {
-            Glyph glyph = getGlyph(text.charAt(ii));
-            glyph.render(renderer, x, y);
-            x += glyph.width;
+        // look up the glyphs in the reusable scratch array
+        int length = text.length();
+        if (_renderGlyphs.length < length) {
+            _renderGlyphs = new Glyph[Math.max(length, _renderGlyphs.length * 2)];
+        }
+        for (int ii = 0; ii < length; ii++) {
+            _renderGlyphs[ii] = getGlyph(text.charAt(ii));
         }
+        renderGlyphs(renderer, _renderGlyphs, length, x, y);
     }
 
     @Override
@@ -210,10 +214,7 @@ public class CharacterTextFactory extends TextFactory
                 Renderer renderer, Glyph[] glyphs, Color4f color, int x, int y, float alpha) {
                 float a = color.a * alpha;
                 renderer.setColorState(color.r * a, color.g * a, color.b * a, a);
-                for (Glyph glyph : glyphs) {
-                    glyph.render(renderer, x, y);
-                    x += glyph.width;
-                }
+                CharacterTextFactory.this.renderGlyphs(renderer, glyphs, glyphs.length, x, y);
             }
         };
     }
@@ -320,6 +321,38 @@ public class CharacterTextFactory extends TextFactory
         return '-' == c || (c >= 0x4E00 && c <= 0x9FFF);
     }
 
+    /**
+     * Renders the first <code>count</code> glyphs of the supplied array, batching the quads of
+     * consecutive glyphs that share a texture into a single primitive.
+     */
+    protected void renderGlyphs (Renderer renderer, Glyph[] glyphs, int count, int x, int y)
+    {
+        // make sure all glyphs are in the texture before we start drawing
+        for (int ii = 0; ii < count; ii++) {
+            glyphs[ii].load(renderer);
+        }
+        TextureUnit[] units = null;
+        for (int ii = 0; ii < count; ii++) {
+            Glyph glyph = glyphs[ii];
+            TextureUnit[] gunits = glyph.getUnits();
+            if (gunits != null) {
+                if (gunits != units) {
+                    if (units != null) {
+                        GL11.glEnd();
+                    }
+                    renderer.setTextureState(units = gunits);
+                    renderer.setMatrixMode(GL11.GL_MODELVIEW);
+                    GL11.glBegin(GL11.GL_QUADS);
+                }
+                glyph.addQuad(x, y);
+            }
+            x += glyph.width;
+        }
+        if (units != null) {
+            GL11.glEnd();
+        }
+    }
+
     /**
      * Inserts the glyph image in the scratch pad into the current texture (creating a new
      * texture if there is no current texture or the current texture doesn't have enough
@@ -371,36 +404,64 @@ public class CharacterTextFactory extends TextFactory
          */
         public void render (Renderer renderer, int x, int y)
         {
+            load(renderer);
             if (_units == null) {
-                if (_bounds == null) {
-                    return; // whitespace
-                }
-                // render the glyph to the scratch image
-                _graphics.clearRect(0, 0, _scratch.getWidth(), _scratch.getHeight());
-                Shape outline = _vector.getOutline(-_bounds.x, _bounds.y + _bounds.height);
-                if (_effect == OUTLINE) {
-                    _graphics.setStroke(new BasicStroke(
-                        _size, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_ROUND));
-                    _graphics.draw(outline);
-                } else {
-                    _graphics.fill(outline);
-                }
-                float[] tcoords = new float[4];
-                _units = addGlyphToTexture(renderer, _bounds.width, _bounds.height, tcoords);
-                _s1 = tcoords[0];
-                _t1 = tcoords[1];
-                _s2 = tcoords[2];
-                _t2 = tcoords[3];
-                _vector = null;
+                return; // whitespace
             }
+            renderer.setTextureState(_units);
+            renderer.setMatrixMode(GL11.GL_MODELVIEW);
+            GL11.glBegin(GL11.GL_QUADS);
+            addQuad(x, y);
+            GL11.glEnd();
+        }
+
+        /**
+         * Renders the glyph into a texture, if it hasn't been already.
+         */
+        public void load (Renderer renderer)
+        {
+            if (_units != null || _bounds == null) {
+                return;
+            }
+            // render the glyph to the scratch image
+            _graphics.clearRect(0, 0, _scratch.getWidth(), _scratch.getHeight());
+            Shape outline = _vector.getOutline(-_bounds.x, _bounds.y + _bounds.height);
+            if (_effect == OUTLINE) {
+                _graphics.setStroke(new BasicStroke(
+                    _size, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_ROUND));
+                _graphics.draw(outline);
+            } else {
+                _graphics.fill(outline);
+            }
+            float[] tcoords = new float[4];
+            _units = addGlyphToTexture(renderer, _bounds.width, _bounds.height, tcoords);
+            _s1 = tcoords[0];
+            _t1 = tcoords[1];
+            _s2 = tcoords[2];
+            _t2 = tcoords[3];
+            _vector = null;
+        }
+
+        /**
+         * Returns the texture units containing the glyph, or null if it has not been loaded or
+         * is whitespace.
+         */
+        public TextureUnit[] getUnits ()
+        {
+            return _units;
+        }
+
+        /**
+         * Emits the vertices of the glyph's quad, which must be loaded, at the specified
+         * position.  Must be called between <code>glBegin</code> and <code>glEnd</code>.
+         */
+        public void addQuad (int x, int y)
+        {
             int lx = x + _bounds.x;
             int ly = y + _bounds.y;
             int ux = lx + _bounds.width;
             int uy = ly + _bounds.height;
 
-            renderer.setTextureState(_units);
-            renderer.setMatrixMode(GL11.GL_MODELVIEW);
-            GL11.glBegin(GL11.GL_QUADS);
             GL11.glTexCoord2f(_s1, _t1);
             GL11.glVertex2f(lx, ly);
             GL11.glTexCoord2f(_s2, _t1);
@@ -409,7 +470,6 @@ public class CharacterTextFactory extends TextFactory
             GL11.glVertex2f(ux, uy);
             GL11.glTexCoord2f(_s1, _t2);
             GL11.glVertex2f(lx, uy);
-            GL11.glEnd();
         }
 
         /** The glyph character. */
@@ -547,6 +607,9 @@ public class CharacterTextFactory extends TextFactory
     /** Cached glyphs. */
     protected HashIntMap<Glyph> _glyphs = new HashIntMap<Glyph>();
 
+    /** Scratch array holding the glyphs of directly rendered strings. */
+    protected Glyph[] _renderGlyphs = new Glyph[16];
+
     /** The glyph texture currently being populated. */
     protected GlyphTexture _texture;
 
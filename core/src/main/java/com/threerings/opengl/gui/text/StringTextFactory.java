@@ -44,7 +44,11 @@ import java.text.AttributedString;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+
+import com.google.common.base.Objects;
+
 import com.samskivert.util.RunAnywhere;
 import com.samskivert.util.StringUtil;
 
@@ -103,6 +107,14 @@ public class StringTextFactory extends TextFactory
             text = " ";
         }
 
+        // the same strings tend to be created over and over (labels, tooltips, damage numbers),
+        // so we reuse the texts (and thus their textures) of recently created strings
+        Text cached = _cachedTexts.get(
+            _tkey.init(text, color, effect, effectSize, effectColor, useAdvance));
+        if (cached != null) {
+            return cached;
+        }
+
         Graphics2D gfx = _stub.createGraphics();
         TextLayout layout;
         try {
@@ -117,8 +129,10 @@ public class StringTextFactory extends TextFactory
             gfx.dispose();
         }
 
-        return createText(text, layout, color, effect, effectSize, effectColor,
-                          text.length(), useAdvance);
+        Text result = createText(text, layout, color, effect, effectSize, effectColor,
+                                 text.length(), useAdvance);
+        _cachedTexts.put(_tkey.cloneKey(), result);
+        return result;
     }
 
     // documentation inherited
@@ -632,6 +646,57 @@ public class StringTextFactory extends TextFactory
         }
     }
 
+    /** Identifies a cached text. */
+    protected static class TextKey implements Cloneable
+    {
+        public String text;
+        public Color4f color;
+        public int effect;
+        public int effectSize;
+        public Color4f effectColor;
+        public boolean useAdvance;
+
+        public TextKey init (String text, Color4f color, int effect, int effectSize,
+                             Color4f effectColor, boolean useAdvance) {
+            this.text = text;
+            this.color = color;
+            this.effect = effect;
+            this.effectSize = effectSize;
+            this.effectColor = effectColor;
+            this.useAdvance = useAdvance;
+            return this;
+        }
+
+        /**
+         * Clones the key, copying the colors (which the caller may later modify).
+         */
+        public TextKey cloneKey () {
+            try {
+                TextKey key = (TextKey)super.clone();
+                key.color = new Color4f(color);
+                key.effectColor = (effectColor == null) ? null : new Color4f(effectColor);
+                return key;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public boolean equals (Object other) {
+            if (!(other instanceof TextKey)) {
+                return false;
+            }
+            TextKey okey = (TextKey)other;
+            return text.equals(okey.text) && color.equals(okey.color) &&
+                effect == okey.effect && effectSize == okey.effectSize &&
+                Objects.equal(effectColor, okey.effectColor) && useAdvance == okey.useAdvance;
+        }
+
+        public int hashCode () {
+            return text.hashCode() ^ color.hashCode() ^ effect ^ (effectSize << 8) ^
+                (useAdvance ? 1 << 16 : 0);
+        }
+    }
+
     protected boolean _antialias;
     protected int _height;
     protected BufferedImage _stub;
@@ -645,6 +710,18 @@ public class StringTextFactory extends TextFactory
     // to avoid exercising the garbage collector
     protected GlowKey _gkey = new GlowKey();
 
+    // the most recently created texts, in access order
+    protected Map<TextKey, Text> _cachedTexts = new LinkedHashMap<TextKey, Text>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry (Map.Entry<TextKey, Text> eldest) {
+            return size() > MAX_CACHED_TEXTS;
+        }
+    };
+
+    // reused to look up cached texts
+    protected TextKey _tkey = new TextKey();
+
+    protected static final int MAX_CACHED_TEXTS = 256;
+
     protected static final char NONE = '!';
     protected static final char BOLD = 'b';
     protected static final char ITALIC = 'i';
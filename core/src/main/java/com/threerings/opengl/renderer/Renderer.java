@@ -737,6 +737,32 @@ public class Renderer
         }
     }
 
+    /**
+     * Invalidates all of the cached states (including the matrix mode), forcing them to be
+     * reapplied.  This should be called after the OpenGL state has been modified behind the
+     * renderer's back (as when calling a display list that sets state).
+     */
+    public void invalidateStates ()
+    {
+        invalidateAlphaState();
+        invalidateArrayState();
+        invalidateColorState();
+        invalidateColorMaskState();
+        invalidateCullState();
+        invalidateDepthState();
+        invalidateFogState();
+        invalidateLightState();
+        invalidateLineState();
+        invalidateMaterialState();
+        invalidatePointState();
+        invalidatePolygonState();
+        invalidateShaderState();
+        invalidateStencilState();
+        invalidateTextureState();
+        invalidateTransformState();
+        _matrixMode = -1;
+    }
+
     /**
      * Sets the alpha testing and blending state.  If <code>alphaTestFunc</code> is
      * {@link GL11#GL_ALWAYS}, alpha testing will be disabled.  If <code>srcBlendFactor</code>
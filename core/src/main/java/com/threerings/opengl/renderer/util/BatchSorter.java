@@ -0,0 +1,186 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.renderer.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.threerings.opengl.renderer.Batch;
+
+/**
+ * Sorts lists of {@link Batch}es by packed 64-bit keys using a least-significant-digit radix sort,
+ * which avoids the comparisons (and the walks over {@link Batch#key} arrays) of comparator-based
+ * sorting.  The sort is stable.  Sorters reuse their working arrays, so each should only be used
+ * from one thread.
+ */
+public abstract class BatchSorter
+{
+    /**
+     * Sorts batches by state, then front-to-back.
+     */
+    public static class ByState extends BatchSorter
+    {
+        @Override
+        public long getKey (Batch batch)
+        {
+            return getStateKey(batch.key) | (~getDepthKey(batch.depth) >>> 16 & 0xFFFFL);
+        }
+    }
+
+    /**
+     * Sorts batches back-to-front.
+     */
+    public static class BackToFront extends BatchSorter
+    {
+        @Override
+        public long getKey (Batch batch)
+        {
+            return getDepthKey(batch.depth);
+        }
+    }
+
+    /**
+     * Sorts batches front-to-back.
+     */
+    public static class FrontToBack extends BatchSorter
+    {
+        @Override
+        public long getKey (Batch batch)
+        {
+            return ~getDepthKey(batch.depth) & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * Packs the shader, first texture, and buffer ids of a {@link Batch#key} into the upper 48
+     * bits of a sort key.  Ids are truncated to fit, so batches with distinct states may
+     * occasionally share a key, which affects only how well state changes are minimized.
+     */
+    public static long getStateKey (int[] key)
+    {
+        // see SimpleBatch.updateKey: vertex shader, fragment shader, textures, -1, buffer
+        if (key == null || key.length < 2) {
+            return 0L;
+        }
+        int texture = (key.length > 2 && key[2] != -1) ? key[2] : 0;
+        int buffer = (key.length > 3) ? key[key.length - 1] : 0;
+        return ((long)(key[0] & 0x3FF) << 54) | ((long)(key[1] & 0x3FF) << 44) |
+            ((long)(texture & 0xFFF) << 32) | ((long)(buffer & 0xFFFF) << 16);
+    }
+
+    /**
+     * Returns an unsigned 32-bit key that orders depths from lowest to highest (that is,
+     * back-to-front).  The upper 16 bits of the key make a usable quantized depth.
+     */
+    public static long getDepthKey (float depth)
+    {
+        int bits = Float.floatToIntBits(depth);
+        bits ^= (bits >> 31) & 0x7FFFFFFF; // flip the magnitude of negative values
+        return (bits ^ 0x80000000) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Sorts the supplied list of batches in place.
+     */
+    public void sort (List<Batch> batches)
+    {
+        int size = batches.size();
+        if (size < 2) {
+            return;
+        }
+        if (_keys.length < size) {
+            int capacity = Math.max(size, _keys.length * 2);
+            _keys = new long[capacity];
+            _tkeys = new long[capacity];
+            _batches = new Batch[capacity];
+            _tbatches = new Batch[capacity];
+        }
+        long[] keys = _keys, tkeys = _tkeys;
+        Batch[] batches0 = _batches, batches1 = _tbatches;
+        long diff = 0L;
+        for (int ii = 0; ii < size; ii++) {
+            Batch batch = batches.get(ii);
+            batches0[ii] = batch;
+            diff |= (keys[ii] = getKey(batch)) ^ keys[0];
+        }
+
+        // one pass per byte, skipping the bytes in which no keys differ
+        int[] counts = _counts;
+        for (int shift = 0; shift < 64; shift += 8) {
+            if ((diff >>> shift & 0xFF) == 0) {
+                continue;
+            }
+            Arrays.fill(counts, 0);
+            for (int ii = 0; ii < size; ii++) {
+                counts[(int)(keys[ii] >>> shift) & 0xFF]++;
+            }
+            for (int ii = 0, total = 0; ii < 256; ii++) {
+                int count = counts[ii];
+                counts[ii] = total;
+                total += count;
+            }
+            for (int ii = 0; ii < size; ii++) {
+                long key = keys[ii];
+                int idx = counts[(int)(key >>> shift) & 0xFF]++;
+                tkeys[idx] = key;
+                batches1[idx] = batches0[ii];
+            }
+            long[] ktmp = keys;
+            keys = tkeys;
+            tkeys = ktmp;
+            Batch[] btmp = batches0;
+            batches0 = batches1;
+            batches1 = btmp;
+        }
+
+        // copy the results back and clear our references to the batches
+        for (int ii = 0; ii < size; ii++) {
+            batches.set(ii, batches0[ii]);
+        }
+        Arrays.fill(_batches, 0, size, null);
+        Arrays.fill(_tbatches, 0, size, null);
+    }
+
+    /**
+     * Computes the sort key for the specified batch.  Keys are compared as unsigned values.
+     */
+    public abstract long getKey (Batch batch);
+
+    /** Holds the batch keys. */
+    protected long[] _keys = new long[0];
+
+    /** Holds the batch keys during each pass. */
+    protected long[] _tkeys = new long[0];
+
+    /** Holds the batches. */
+    protected Batch[] _batches = new Batch[0];
+
+    /** Holds the batches during each pass. */
+    protected Batch[] _tbatches = new Batch[0];
+
+    /** The digit counts. */
+    protected int[] _counts = new int[256];
+}
@@ -0,0 +1,152 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.scene;
+
+import java.util.ArrayList;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static com.threerings.opengl.Log.log;
+
+/**
+ * Collects the tick work deferred by scene elements and runs it on a pool of worker threads,
+ * followed by the corresponding merges on the calling thread.
+ */
+public class DeferredTickQueue
+{
+    /**
+     * Adds a piece of work to the queue.
+     *
+     * @param merge the merge to run after all work has completed (may be null).
+     */
+    public void add (Runnable work, Runnable merge)
+    {
+        _work.add(work);
+        _merges.add(merge);
+    }
+
+    /**
+     * Returns the number of pieces of work in the queue.
+     */
+    public int size ()
+    {
+        return _work.size();
+    }
+
+    /**
+     * Runs the queued work on the worker pool (and the calling thread), waits for it to complete,
+     * then runs the merges on the calling thread in order of submission and clears the queue.
+     */
+    public void run ()
+    {
+        int count = _work.size();
+        if (count == 0) {
+            return;
+        }
+        if (count == 1) {
+            runWork(_work.get(0));
+        } else {
+            // submit all but the first, which we run on this thread while the others proceed
+            ExecutorService executor = getExecutor();
+            Future<?>[] futures = new Future<?>[count];
+            for (int ii = 1; ii < count; ii++) {
+                futures[ii] = executor.submit(_work.get(ii));
+            }
+            runWork(_work.get(0));
+            boolean interrupted = false;
+            for (int ii = 1; ii < count; ii++) {
+                while (true) {
+                    try {
+                        futures[ii].get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true; // the merges can't run until the work is done
+                    } catch (ExecutionException e) {
+                        log.warning("Error in deferred tick.", e.getCause());
+                        break;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            for (int ii = 0; ii < count; ii++) {
+                Runnable merge = _merges.get(ii);
+                if (merge != null) {
+                    merge.run();
+                }
+            }
+        } finally {
+            _work.clear();
+            _merges.clear();
+        }
+    }
+
+    /**
+     * Runs a piece of work on the calling thread, logging any exception.
+     */
+    protected static void runWork (Runnable work)
+    {
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            log.warning("Error in deferred tick.", e);
+        }
+    }
+
+    /**
+     * Returns the executor shared by all queues, creating it if necessary.
+     */
+    protected static synchronized ExecutorService getExecutor ()
+    {
+        if (_executor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            _executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread (Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Scene tick worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return _executor;
+    }
+
+    /** The queued work. */
+    protected ArrayList<Runnable> _work = new ArrayList<Runnable>();
+
+    /** The merges corresponding to the queued work (null where there is none). */
+    protected ArrayList<Runnable> _merges = new ArrayList<Runnable>();
+
+    /** The executor shared by all queues. */
+    protected static ExecutorService _executor;
+}
@@ -108,7 +108,7 @@ public class HashScene extends Scene
                 for (int xx = minx; xx <= maxx; xx++) {
                     Node<SceneElement> root = _elements.get(_coord.set(xx, yy, zz));
                     if (root != null) {
-                        root.composite(frustum);
+                        root.composite(frustum, Frustum.ALL_PLANES);
                     }
                 }
             }
@@ -549,14 +549,20 @@ public class HashScene extends Scene
 
         /**
          * Composites the elements in this node.
+         *
+         * @param mask the mask of frustum planes straddled by the parent node (the node lies
+         * inside the others).
          */
-        public void composite (Frustum frustum)
+        public void composite (Frustum frustum, int mask)
         {
-            Frustum.IntersectionType type = frustum.getIntersectionType(_bounds);
-            if (type == Frustum.IntersectionType.CONTAINS) {
+            // start with the plane that rejected the node last time, if any
+            int nmask = frustum.getIntersectionMask(_bounds, mask, _rejectingPlane);
+            if (nmask == 0) {
                 compositeAll();
-            } else if (type == Frustum.IntersectionType.INTERSECTS) {
-                compositeIntersecting(frustum);
+            } else if (nmask == -1) {
+                _rejectingPlane = frustum.getRejectingPlane();
+            } else {
+                compositeIntersecting(frustum, nmask);
             }
         }
 
@@ -612,9 +618,12 @@ public class HashScene extends Scene
 
         /**
          * Composites the elements intersecting the given frustum.
+         *
+         * @param mask the mask of frustum planes straddled by this node.
          */
-        protected void compositeIntersecting (Frustum frustum)
+        protected void compositeIntersecting (Frustum frustum, int mask)
         {
+            // objects may extend beyond the node, so we must test them against all planes
             for (int ii = 0, nn = _objects.size(); ii < nn; ii++) {
                 T object = _objects.get(ii);
                 if (object.updateLastVisit(_visit) &&
@@ -656,6 +665,9 @@ public class HashScene extends Scene
 
         /** The objects in the node. */
         public ArrayList<T> _objects = new ArrayList<T>(4);
+
+        /** The frustum plane that last rejected the node. */
+        protected int _rejectingPlane;
     }
 
     /**
@@ -773,12 +785,12 @@ public class HashScene extends Scene
         }
 
         @Override
-        protected void compositeIntersecting (Frustum frustum)
+        protected void compositeIntersecting (Frustum frustum, int mask)
         {
-            super.compositeIntersecting(frustum);
+            super.compositeIntersecting(frustum, mask);
             for (Node<T> child : _children) {
                 if (child != null) {
-                    child.composite(frustum);
+                    child.composite(frustum, mask);
                 }
             }
         }
@@ -541,12 +541,60 @@ public abstract class Scene extends DynamicScope
         _transientPolicy = enabled;
     }
 
+    /**
+     * Sets whether or not work deferred through {@link #deferTick} may be run on worker threads.
+     * Defaults to the value of the <code>parallel_tick</code> system property.
+     */
+    public void setParallelTick (boolean parallel)
+    {
+        _parallelTick = parallel;
+    }
+
+    /**
+     * Checks whether deferred tick work may be run on worker threads.
+     */
+    public boolean isParallelTick ()
+    {
+        return _parallelTick;
+    }
+
+    /**
+     * Defers part of an element's tick.  When called while the scene is ticking its elements with
+     * parallel ticking enabled, the work will be run on a worker thread once all elements have
+     * ticked, and the merge will then be run on the tick thread, in order of submission.
+     * Otherwise, both are run immediately.
+     *
+     * @param work the work to perform, which may only modify state owned by the caller.
+     * @param merge applies the results of the work to any shared state (may be null).
+     */
+    public void deferTick (Runnable work, Runnable merge)
+    {
+        if (_deferring) {
+            _deferredTicks.add(work, merge);
+        } else {
+            work.run();
+            if (merge != null) {
+                merge.run();
+            }
+        }
+    }
+
+    /**
+     * Returns the time elapsed to process deferred (parallel) tick work.
+     */
+    public long getDeferredTickTime ()
+    {
+        return _deferredTickTime;
+    }
+
     // documentation inherited from interface Tickable
     public void tick (float elapsed)
     {
         if (_dumpInfluences) {
             log.info("INFLUENCES!!!");
         }
+        _deferring = _parallelTick;
+
         // tick the elements that we always tick (in reverse order,
         // so that they can remove themselves)
         long tick = System.nanoTime();
@@ -566,6 +614,13 @@ public abstract class Scene extends DynamicScope
         tick = System.nanoTime();
         _visibleTickTime = tick - tock;
 
+        // run the deferred work and merge the results before anything reads them
+        _deferring = false;
+        _deferredTicks.run();
+        tock = System.nanoTime();
+        _deferredTickTime = tock - tick;
+        tick = tock;
+
         // find the effects acting on the viewer
         Vector3f location = _ctx.getCameraHandler().getViewerTranslation();
         getEffects(_viewer.set(location, location), _neffects);
@@ -846,9 +901,24 @@ public abstract class Scene extends DynamicScope
     /** The time delta's during the tick. */
     protected long _alwaysTickTime, _visibleTickTime, _updateInfluencesTime, _viewerEffectTime;
 
+    /** The time spent running deferred tick work. */
+    protected long _deferredTickTime;
+
+    /** Whether or not deferred tick work may be run on worker threads. */
+    protected boolean _parallelTick = PARALLEL_TICK;
+
+    /** Set while we're ticking elements and collecting their deferred work. */
+    protected boolean _deferring;
+
+    /** The tick work deferred during the current tick. */
+    protected DeferredTickQueue _deferredTicks = new DeferredTickQueue();
+
     /** If transient policies are enabled. */
     protected boolean _transientPolicy;
 
     /** The default number of sound sources to allow. */
     protected static final int DEFAULT_SOURCES = 10;
+
+    /** Whether scenes run deferred tick work on worker threads by default. */
+    protected static final boolean PARALLEL_TICK = Boolean.getBoolean("parallel_tick");
 }
@@ -30,6 +30,15 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.collect.Maps;
 
 import com.threerings.media.image.Colorization;
 import com.threerings.media.image.ImageUtil;
@@ -57,6 +66,14 @@ public class ImageCache extends ResourceCache
         super(ctx, checkTimestamps);
     }
 
+    /**
+     * Sets the disk cache in which to store decoded and colorized images between runs.
+     */
+    public void setDiskCache (ImageDiskCache diskCache)
+    {
+        _diskCache = diskCache;
+    }
+
     /**
      * Retrieves a GUI image from the cache.
      */
@@ -73,6 +90,33 @@ public class ImageCache extends ResourceCache
         return _buffered.getResource(new ImageKey(path, zations));
     }
 
+    /**
+     * Starts decoding (and colorizing) the identified buffered image on a background thread,
+     * if it isn't already cached or pending (and not too many decodes are already pending).  A
+     * subsequent call to {@link #getBufferedImage} for the same image will wait for the result
+     * rather than decoding it again.
+     */
+    public void prefetchBufferedImage (String path, Colorization... zations)
+    {
+        // a colorized image may require a second slot for its base image
+        if (isBufferedImagePath(path) && _pending.size() < MAX_PENDING - 1) {
+            prefetch(new ImageKey(path, zations));
+        }
+    }
+
+    /**
+     * Discards the background decode of the identified image started by
+     * {@link #prefetchBufferedImage}, if it has not been claimed by a call to
+     * {@link #getBufferedImage}.
+     */
+    public void discardPrefetched (String path, Colorization... zations)
+    {
+        Future<BufferedImage> future = _pending.remove(new ImageKey(path, zations));
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
     /**
      * Clears the cache, forcing resources to be reloaded.
      */
@@ -80,6 +124,160 @@ public class ImageCache extends ResourceCache
     {
         _images.clear();
         _buffered.clear();
+        for (Future<BufferedImage> future : _pending.values()) {
+            future.cancel(false);
+        }
+        _pending.clear();
+    }
+
+    /**
+     * Determines whether the specified resource path refers to an image that we decode through
+     * the buffered image loader (as opposed to a DDS file or something else entirely).
+     */
+    public static boolean isBufferedImagePath (String path)
+    {
+        String lower = path.toLowerCase();
+        return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") ||
+            lower.endsWith(".gif") || lower.endsWith(".bmp");
+    }
+
+    /**
+     * Submits the decode task for the identified image, unless it is already cached or pending.
+     *
+     * @return the pending result, or null if the image is already cached.
+     */
+    protected Future<BufferedImage> prefetch (final ImageKey key)
+    {
+        Future<BufferedImage> future = _pending.get(key);
+        if (future != null || _buffered.isCached(key)) {
+            return future;
+        }
+        Callable<BufferedImage> task;
+        if (key.zations.length == 0) {
+            task = new Callable<BufferedImage>() {
+                public BufferedImage call () {
+                    return readImage(key);
+                }
+            };
+        } else {
+            // the base image is submitted first, so it will always be dequeued before we are
+            ImageKey bkey = new ImageKey(key.path, new Colorization[0]);
+            final Future<BufferedImage> bfuture = prefetch(bkey);
+            final BufferedImage bimage = (bfuture == null) ? _buffered.getResource(bkey) : null;
+            task = new Callable<BufferedImage>() {
+                public BufferedImage call () throws Exception {
+                    BufferedImage image = getCachedImage(key);
+                    return (image == null) ?
+                        recolorImage(key, (bfuture == null) ? bimage : bfuture.get()) : image;
+                }
+            };
+        }
+        _pending.put(key, future = getDecodeExecutor().submit(task));
+        return future;
+    }
+
+    /**
+     * Waits for the result of a pending decode.
+     *
+     * @return the decoded image, or null if the decode failed.
+     */
+    protected BufferedImage awaitImage (ImageKey key, Future<BufferedImage> future)
+    {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    log.warning("Failed to decode image in background.",
+                        "path", key.path, e.getCause());
+                    return null;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads and decodes the identified (uncolorized) image resource, or retrieves it from the
+     * disk cache.  Called on the decode threads as well as the main thread, so must not touch
+     * the memory caches.
+     */
+    protected BufferedImage readImage (ImageKey key)
+    {
+        BufferedImage image = getCachedImage(key);
+        if (image != null) {
+            return image;
+        }
+        try {
+            if ((image = _ctx.getResourceManager().getImageResource(key.path)) == null) {
+                log.warning("Unknown image format.", "path", key.path);
+            }
+        } catch (IOException e) {
+            log.warning("Failed to read image.", "path", key.path, e);
+        }
+        if (image == null) {
+            return ImageUtil.createErrorImage(64, 64);
+        }
+        cacheImage(key, image);
+        return image;
+    }
+
+    /**
+     * Applies the key's colorizations to the supplied base image and stores the result in the
+     * disk cache.  Called on the decode threads as well as the main thread.
+     */
+    protected BufferedImage recolorImage (ImageKey key, BufferedImage base)
+    {
+        BufferedImage image = ImageUtil.recolorImage(base, key.zations);
+        cacheImage(key, image);
+        return image;
+    }
+
+    /**
+     * Retrieves the identified image from the disk cache, if we have one and it contains the
+     * image.
+     */
+    protected BufferedImage getCachedImage (ImageKey key)
+    {
+        return (_diskCache == null) ? null : _diskCache.get(
+            key.path, _ctx.getResourceManager().getResourceFile(key.path), key.zations);
+    }
+
+    /**
+     * Stores the identified image in the disk cache, if we have one.
+     */
+    protected void cacheImage (ImageKey key, BufferedImage image)
+    {
+        if (_diskCache != null) {
+            _diskCache.put(
+                key.path, _ctx.getResourceManager().getResourceFile(key.path), key.zations, image);
+        }
+    }
+
+    /**
+     * Returns the executor shared by all image caches for background decoding, creating it if
+     * necessary.
+     */
+    protected static synchronized ExecutorService getDecodeExecutor ()
+    {
+        if (_decodeExecutor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            _decodeExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread (Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Image decode worker");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return _decodeExecutor;
     }
 
     /**
@@ -138,21 +336,36 @@ public class ImageCache extends ResourceCache
     protected Subcache<ImageKey, BufferedImage> _buffered =
         new Subcache<ImageKey, BufferedImage>() {
         protected BufferedImage loadResource (ImageKey key) {
-            if (key.zations.length > 0) {
-                return ImageUtil.recolorImage(getBufferedImage(key.path), key.zations);
-            }
-            BufferedImage image = null;
-            try {
-                if ((image = _ctx.getResourceManager().getImageResource(key.path)) == null) {
-                    log.warning("Unknown image format.", "path", key.path);
+            Future<BufferedImage> future = _pending.remove(key);
+            if (future != null) {
+                BufferedImage image = awaitImage(key, future);
+                if (image != null) {
+                    if (key.zations.length > 0) {
+                        getBufferedImage(key.path); // claim the prefetched base image as well
+                    }
+                    return image;
                 }
-            } catch (IOException e) {
-                log.warning("Failed to read image.", "path", key.path, e);
             }
-            return (image == null) ? ImageUtil.createErrorImage(64, 64) : image;
+            if (key.zations.length > 0) {
+                BufferedImage image = getCachedImage(key);
+                return (image == null) ? recolorImage(key, getBufferedImage(key.path)) : image;
+            }
+            return readImage(key);
         }
         protected String getResourcePath (ImageKey key) {
             return key.path;
         }
     };
+
+    /** The disk cache, if any. */
+    protected ImageDiskCache _diskCache;
+
+    /** Decodes started by {@link #prefetchBufferedImage} and not yet claimed. */
+    protected HashMap<ImageKey, Future<BufferedImage>> _pending = Maps.newHashMap();
+
+    /** The maximum number of decodes that may be pending at once. */
+    protected static final int MAX_PENDING = 256;
+
+    /** The executor shared by all image caches for background decoding. */
+    protected static ExecutorService _decodeExecutor;
 }
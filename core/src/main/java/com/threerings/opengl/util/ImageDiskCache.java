@@ -0,0 +1,356 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.util;
+
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.samskivert.util.StringUtil;
+
+import com.threerings.media.image.Colorization;
+
+import static com.threerings.opengl.Log.log;
+
+/**
+ * A persistent, size-bounded cache of decoded (and colorized) images.  Entries are keyed on the
+ * resource path, the last-modified timestamp of the resource file, and the colorizations applied,
+ * and contain the raw interleaved pixel data, so that reading them back requires no decoding.
+ * This class is thread-safe.
+ */
+public class ImageDiskCache
+{
+    /**
+     * Creates a new disk cache.
+     *
+     * @param dir the directory in which to store the cache files.
+     * @param maxSize the maximum total size of the cache files, in bytes.
+     */
+    public ImageDiskCache (File dir, long maxSize)
+    {
+        _dir = dir;
+        _maxSize = maxSize;
+        if (!(_dir.isDirectory() || _dir.mkdirs())) {
+            log.warning("Failed to create image cache directory.", "dir", _dir);
+            return;
+        }
+
+        // populate the index, least recently used first
+        File[] files = _dir.listFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare (File f1, File f2) {
+                long m1 = f1.lastModified(), m2 = f2.lastModified();
+                return (m1 < m2) ? -1 : (m1 == m2 ? 0 : +1);
+            }
+        });
+        long staleTime = System.currentTimeMillis() - STALE_TEMP_AGE;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                long length = file.length();
+                _index.put(name, length);
+                _size += length;
+
+            } else if (name.startsWith(TEMP_PREFIX) && name.endsWith(TEMP_SUFFIX) &&
+                    file.lastModified() < staleTime) {
+                // temporary file left over from an interrupted write (other clients sharing the
+                // directory may be writing to newer ones)
+                if (!file.delete()) {
+                    log.warning("Failed to delete stale temporary file.", "file", file);
+                }
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Attempts to retrieve an image from the cache.
+     *
+     * @param file the resource file from which the image was originally read.
+     * @return the cached image, or null if not cached.
+     */
+    public BufferedImage get (String path, File file, Colorization[] zations)
+    {
+        String name = getName(path, file, zations);
+        if (name == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (_index.get(name) == null) {
+                return null;
+            }
+        }
+        File cfile = new File(_dir, name);
+        try {
+            BufferedImage image = read(cfile);
+            if (image != null) {
+                cfile.setLastModified(System.currentTimeMillis());
+                return image;
+            }
+        } catch (IOException e) {
+            log.warning("Failed to read cached image.", "path", path, "file", cfile, e);
+        }
+        remove(name);
+        return null;
+    }
+
+    /**
+     * Stores an image in the cache.
+     *
+     * @param file the resource file from which the image was originally read.
+     */
+    public void put (String path, File file, Colorization[] zations, BufferedImage image)
+    {
+        String name = getName(path, file, zations);
+        if (name == null) {
+            return;
+        }
+        synchronized (this) {
+            if (_index.containsKey(name)) {
+                return;
+            }
+        }
+        File cfile = new File(_dir, name);
+        try {
+            File tmp = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, _dir);
+            write(tmp, image);
+            if (!tmp.renameTo(cfile)) {
+                // most likely another client stored the same image first
+                if (!tmp.delete()) {
+                    log.warning("Failed to delete temporary file.", "file", tmp);
+                }
+                return;
+            }
+        } catch (IOException e) {
+            log.warning("Failed to write cached image.", "path", path, e);
+            return;
+        }
+        synchronized (this) {
+            Long osize = _index.put(name, cfile.length());
+            _size += cfile.length() - (osize == null ? 0L : osize);
+            evict();
+        }
+    }
+
+    /**
+     * Returns the name of the cache file for the identified image, or null if the image
+     * shouldn't be cached.
+     */
+    protected static String getName (String path, File file, Colorization[] zations)
+    {
+        long lastModified = file.lastModified();
+        if (lastModified == 0L) {
+            return null; // not a loose file, so we can't tell when it changes
+        }
+        StringBuilder buf = new StringBuilder(path).append('@').append(lastModified);
+        for (Colorization zation : zations) {
+            buf.append('|').append(zation.colorizationId);
+            buf.append(':').append(zation.rootColor.getRGB());
+            buf.append(':').append(Arrays.toString(zation.range));
+            buf.append(':').append(Arrays.toString(zation.offsets));
+        }
+        return StringUtil.md5hex(buf.toString()) + SUFFIX;
+    }
+
+    /**
+     * Reads an image from the specified cache file.
+     *
+     * @return the image, or null if the file is not in the current format.
+     */
+    protected static BufferedImage read (File file)
+        throws IOException
+    {
+        // read the file with a plain stream rather than mapping it: on Windows, a mapped file
+        // can't be deleted until the mapping is garbage collected
+        long length = file.length();
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            if (length < HEADER_SIZE || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int width = in.readInt(), height = in.readInt(), ncomps = in.readInt();
+            BufferedImage image = createImage(width, height, ncomps);
+            if (image == null) {
+                return null;
+            }
+            byte[] data = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+            if (length - HEADER_SIZE != data.length) {
+                return null;
+            }
+            in.readFully(data);
+            return image;
+
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes an image to the specified cache file.
+     */
+    protected static void write (File file, BufferedImage image)
+        throws IOException
+    {
+        int width = image.getWidth(), height = image.getHeight();
+        int ncomps = image.getColorModel().getNumComponents();
+        BufferedImage dest = createImage(width, height, ncomps);
+        Graphics2D graphics = dest.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        byte[] data = ((DataBufferByte)dest.getRaster().getDataBuffer()).getData();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(ncomps);
+        header.flip();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            channel.write(header);
+            channel.write(ByteBuffer.wrap(data));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Creates an image with interleaved byte storage and the specified number of components
+     * (so that the texture format chosen for it matches that of the original).
+     */
+    protected static BufferedImage createImage (int width, int height, int ncomps)
+    {
+        switch (ncomps) {
+            case 1: return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            case 3: return new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            case 4: return new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+            case 2:
+                ComponentColorModel cmodel = new ComponentColorModel(
+                    ColorSpace.getInstance(ColorSpace.CS_GRAY), true, false,
+                    Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+                return new BufferedImage(cmodel, Raster.createInterleavedRaster(
+                    DataBuffer.TYPE_BYTE, width, height, 2, null), false, null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Removes the named entry from the cache.
+     */
+    protected synchronized void remove (String name)
+    {
+        Long size = _index.get(name);
+        if (size != null && delete(name)) {
+            _index.remove(name);
+            _size -= size;
+        }
+    }
+
+    /**
+     * Removes least recently used entries until we're under the size limit.
+     */
+    protected synchronized void evict ()
+    {
+        for (Iterator<Map.Entry<String, Long>> it = _index.entrySet().iterator();
+                it.hasNext() && _size > _maxSize; ) {
+            Map.Entry<String, Long> entry = it.next();
+            if (delete(entry.getKey())) {
+                it.remove();
+                _size -= entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * Deletes the named cache file.
+     *
+     * @return true if the file is gone, false if it couldn't be deleted (in which case it remains
+     * in the index and counts towards the total size, so that we try again later).
+     */
+    protected boolean delete (String name)
+    {
+        File file = new File(_dir, name);
+        if (file.delete() || !file.exists()) {
+            return true;
+        }
+        log.warning("Failed to delete cached image.", "file", file);
+        return false;
+    }
+
+    /** The cache directory. */
+    protected File _dir;
+
+    /** The maximum total size of the cache files. */
+    protected long _maxSize;
+
+    /** The total size of the cache files. */
+    protected long _size;
+
+    /** Maps cache file names to sizes, in access order. */
+    protected LinkedHashMap<String, Long> _index = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    /** Identifies cache files. */
+    protected static final int MAGIC = 0x434C4943;
+
+    /** The version of the cache file format.  Increment when the format changes. */
+    protected static final int VERSION = 1;
+
+    /** The size of the cache file header. */
+    protected static final int HEADER_SIZE = 20;
+
+    /** The suffix of the cache files. */
+    protected static final String SUFFIX = ".img";
+
+    /** The prefix of the temporary files to which images are written before being renamed. */
+    protected static final String TEMP_PREFIX = "image";
+
+    /** The suffix of the temporary files. */
+    protected static final String TEMP_SUFFIX = ".tmp";
+
+    /** The age after which temporary files are assumed to have been abandoned. */
+    protected static final long STALE_TEMP_AGE = 24L * 60 * 60 * 1000;
+}
@@ -25,12 +25,16 @@
 
 package com.threerings.opengl.util;
 
+import java.util.Set;
+
 import com.threerings.config.ConfigGroup;
 import com.threerings.config.ConfigReference;
 import com.threerings.config.ManagedConfig;
 import com.threerings.util.DeepObject;
 import com.threerings.util.DeepOmit;
 
+import com.threerings.editor.util.PropertyUtil;
+
 import com.threerings.opengl.model.config.AnimationConfig;
 import com.threerings.opengl.model.config.ModelConfig;
 
@@ -81,6 +85,13 @@ public abstract class Preloadable extends DeepObject
             return _ref;
         }
 
+        @Override
+        public void getResources (GlContext ctx, Set<String> paths)
+        {
+            PropertyUtil.getResources(ctx.getConfigManager(),
+                ctx.getConfigManager().getConfig(_clazz, _ref), paths);
+        }
+
         @Override
         public void preload (GlContext ctx)
         {
@@ -125,6 +136,13 @@ public abstract class Preloadable extends DeepObject
             return _ref;
         }
 
+        @Override
+        public void getResources (GlContext ctx, Set<String> paths)
+        {
+            PropertyUtil.getResources(ctx.getConfigManager(),
+                ctx.getConfigManager().getConfig(ModelConfig.class, _ref), paths);
+        }
+
         @Override
         public void preload (GlContext ctx)
         {
@@ -168,6 +186,13 @@ public abstract class Preloadable extends DeepObject
             return _ref;
         }
 
+        @Override
+        public void getResources (GlContext ctx, Set<String> paths)
+        {
+            PropertyUtil.getResources(ctx.getConfigManager(),
+                ctx.getConfigManager().getConfig(AnimationConfig.class, _ref), paths);
+        }
+
         @Override
         public void preload (GlContext ctx)
         {
@@ -189,6 +214,15 @@ public abstract class Preloadable extends DeepObject
         protected com.threerings.opengl.model.Animation _anim;
     }
 
+    /**
+     * Adds the paths of the resources required by this preloadable to the supplied set, so that
+     * they may be fetched in the background before {@link #preload} is called.
+     */
+    public void getResources (GlContext ctx, Set<String> paths)
+    {
+        // nothing by default
+    }
+
     /**
      * Preloads this resource and creates a reference to it, preventing it from being
      * garbage-collected.
@@ -25,10 +25,17 @@
 
 package com.threerings.opengl.util;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import com.samskivert.util.QuickSort;
 
 /**
  * Contains a set of preloadables and provides a means for incrementalling preloading them.
@@ -43,6 +50,24 @@ public class PreloadableSet extends HashSet<Preloadable>
         _ctx = ctx;
     }
 
+    /**
+     * Sets the priority to assign to preloadables subsequently added to the set.  Preloadables
+     * with higher priorities (for instance, those closer to the camera) are preloaded first.  A
+     * preloadable added more than once retains the highest priority with which it was added.
+     */
+    public void setPriority (float priority)
+    {
+        _priority = priority;
+    }
+
+    /**
+     * Returns the priority assigned to newly added preloadables.
+     */
+    public float getPriority ()
+    {
+        return _priority;
+    }
+
     /**
      * Preloads a batch of the default duration.
      *
@@ -55,7 +80,10 @@ public class PreloadableSet extends HashSet<Preloadable>
 
     /**
      * Preloads a batch of resources in the set.  Any preloadables added to the set after this
-     * method is called for the first time will be preloaded immediately.
+     * method is called for the first time will be preloaded immediately.  Part of each batch is
+     * spent looking ahead of the preloading for the images required by the set, which are
+     * submitted for decoding on background threads so that the (serial) preloading doesn't have
+     * to wait for them.
      *
      * @param duration the maximum amount of time to spend on the batch.
      * @return the percentage of the total resources loaded, from zero to one.
@@ -66,14 +94,27 @@ public class PreloadableSet extends HashSet<Preloadable>
             return 1f;
         }
         if (_remaining == null) {
+            // sort in increasing order of priority, since we preload from the end
             _remaining = Lists.newArrayList(this);
+            QuickSort.sort(_remaining, new Comparator<Preloadable>() {
+                public int compare (Preloadable p1, Preloadable p2) {
+                    return Float.compare(_priorities.get(p1), _priorities.get(p2));
+                }
+            });
+            _priorities = null;
+            _unprefetched = _remaining.size();
         }
-        long end = System.currentTimeMillis() + duration;
+        // spend up to half of the batch looking ahead for images to decode in the background
+        long now = System.currentTimeMillis();
+        long end = now + duration;
+        prefetchImages(now + duration / 2);
         for (int ii = _remaining.size() - 1; ii >= 0 && System.currentTimeMillis() < end; ii--) {
             _remaining.remove(ii).preload(_ctx);
             _preloaded++;
         }
+        _unprefetched = Math.min(_unprefetched, _remaining.size());
         if (_remaining.isEmpty()) {
+            discardPrefetched();
             return 1f;
         }
         return (float)_preloaded / size();
@@ -82,6 +123,12 @@ public class PreloadableSet extends HashSet<Preloadable>
     @Override
     public boolean add (Preloadable preloadable)
     {
+        if (_priorities != null) {
+            Float opriority = _priorities.get(preloadable);
+            if (opriority == null || opriority < _priority) {
+                _priorities.put(preloadable, _priority);
+            }
+        }
         if (!super.add(preloadable)) {
             return false;
         }
@@ -93,12 +140,60 @@ public class PreloadableSet extends HashSet<Preloadable>
         return true;
     }
 
+    /**
+     * Starts decoding the images referenced by the highest-priority preloadables that we have yet
+     * to examine, stopping when the specified time is reached (but always examining at least
+     * one).
+     */
+    protected void prefetchImages (long end)
+    {
+        if (_unprefetched == 0) {
+            return;
+        }
+        Set<String> paths = Sets.newLinkedHashSet();
+        do {
+            _remaining.get(--_unprefetched).getResources(_ctx, paths);
+        } while (_unprefetched > 0 && System.currentTimeMillis() < end);
+
+        ImageCache cache = _ctx.getImageCache();
+        for (String path : paths) {
+            if (_prefetched.add(path)) {
+                cache.prefetchBufferedImage(path);
+            }
+        }
+    }
+
+    /**
+     * Discards any of our prefetched images that were not claimed by the preloadables.
+     */
+    protected void discardPrefetched ()
+    {
+        ImageCache cache = _ctx.getImageCache();
+        for (String path : _prefetched) {
+            cache.discardPrefetched(path);
+        }
+        _prefetched.clear();
+    }
+
     /** The application context. */
     protected GlContext _ctx;
 
+    /** The priority to assign to newly added preloadables. */
+    protected float _priority;
+
+    /** The priorities of the preloadables, until we start preloading. */
+    protected HashMap<Preloadable, Float> _priorities = Maps.newHashMap();
+
     /** The list of resources remaining to be preloaded. */
     protected List<Preloadable> _remaining;
 
     /** The number of resources preloaded so far. */
     protected int _preloaded;
+
+    /** The number of remaining preloadables (from the start of the list) whose images we have
+     * yet to prefetch. */
+    protected int _unprefetched;
+
+    /** The paths of the images we have prefetched. */
+    protected Set<String> _prefetched = Sets.newHashSet();
 }
@@ -73,6 +73,17 @@ public abstract class ResourceCache
             return resource;
         }
 
+        /**
+         * Determines whether the resource corresponding to the specified key is cached and
+         * (if checking timestamps) up-to-date.
+         */
+        public boolean isCached (K key)
+        {
+            CachedResource<V> cached = _resources.get(key);
+            return cached != null && cached.get() != null &&
+                !(_checkTimestamps && cached.wasModified());
+        }
+
         /**
          * Clears the subcache, forcing all resources to be reloaded.
          */
@@ -44,6 +44,7 @@ import com.google.common.collect.TreeBasedTable;
 import com.samskivert.util.ArrayUtil;
 import com.samskivert.util.HashIntMap;
 import com.samskivert.util.IntMap.IntEntry;
+import com.samskivert.util.Tuple;
 
 import com.threerings.crowd.chat.client.ChatDisplay;
 import com.threerings.crowd.chat.data.ChatCodes;
@@ -62,6 +63,7 @@ import com.threerings.expr.Scoped;
 import com.threerings.math.Box;
 import com.threerings.math.FloatMath;
 import com.threerings.math.Ray3D;
+import com.threerings.math.Rect;
 import com.threerings.math.Transform3D;
 import com.threerings.math.Vector2f;
 import com.threerings.math.Vector3f;
@@ -122,7 +124,7 @@ import static com.threerings.tudey.Log.log;
  * Displays a view of a Tudey scene.
  */
 public class TudeySceneView extends DynamicScope
-    implements GlView, PlaceView, TudeySceneModel.Observer, OccupantObserver,
+    implements GlView, PlaceView, TudeySceneModel.BatchObserver, OccupantObserver,
         ChatDisplay, ActorAdvancer.Environment, TudeyCodes
 {
     /**
@@ -394,6 +396,7 @@ public class TudeySceneView extends DynamicScope
             sprite.dispose();
         }
         _entrySprites.clear();
+        clearPaging();
 
         // suggest garbage collection/finalization here, because we may have OpenGL objects hanging
         // around that should be reclaimed
@@ -403,7 +406,9 @@ public class TudeySceneView extends DynamicScope
         // create the new sprites
         (_sceneModel = model).addObserver(this);
         _suppressMergeUpdates = true;
-        for (Entry entry : _sceneModel.getEntries()) {
+        Collection<Entry> entries = isPaging() ?
+            indexEntries(_sceneModel) : _sceneModel.getEntries();
+        for (Entry entry : entries) {
             addEntrySprite(entry);
         }
 
@@ -517,7 +522,7 @@ public class TudeySceneView extends DynamicScope
             ModelConfig mconfig = model.getConfig();
             MergedStaticConfig impl = (MergedStaticConfig)mconfig.implementation;
             impl.models = ArrayUtil.append(impl.models, new ComponentModel(ref, transform));
-            mconfig.wasUpdated();
+            mergedSpriteUpdated(sprite);
         }
         return model;
     }
@@ -548,12 +553,13 @@ public class TudeySceneView extends DynamicScope
                 if (impl.models.length == 1) {
                     _scene.remove(model);
                     _mergedSprites.remove(key);
+                    _updatedMerged.remove(sprite);
                     if (_loadingMerged != null) {
                         _loadingMerged.remove(sprite);
                     }
                 } else {
                     impl.models = ArrayUtil.splice(impl.models, ii, 1);
-                    mconfig.wasUpdated();
+                    mergedSpriteUpdated(sprite);
                 }
                 return true;
             }
@@ -821,12 +827,29 @@ public class TudeySceneView extends DynamicScope
 
         // at this point, if we are to preload, we have enough information to begin
         if (_loadingWindow != null && _preloads == null) {
-            ((TudeySceneModel)_ctx.getSceneDirector().getScene().getSceneModel()).getPreloads(
-                _preloads = new PreloadableSet(_ctx));
+            // prioritize the resources nearest the target, which will be seen first
+            Actor target = (_ctrl == null) ? null : actors.get(_ctrl.getTargetId());
+            Vector2f focus = (target == null) ? null : target.getTranslation();
+            TudeySceneModel model =
+                (TudeySceneModel)_ctx.getSceneDirector().getScene().getSceneModel();
+            _preloads = new PreloadableSet(_ctx);
+            if (isPaging()) {
+                // only preload the entries that will be resident when we start
+                if (focus != null) {
+                    updatePageCenter(focus.x, focus.y);
+                }
+                model.getPreloads(_preloads, focus, indexEntries(model));
+            } else {
+                model.getPreloads(_preloads, focus);
+            }
             ConfigManager cfgmgr = _ctx.getConfigManager();
             for (Actor actor : actors.values()) {
+                if (focus != null) {
+                    _preloads.setPriority(-actor.getTranslation().distance(focus));
+                }
                 actor.getPreloads(cfgmgr, _preloads);
             }
+            _preloads.setPriority(0f);
             _loadingActors = actors.clone();
             addExtraPreloads();
             return true;
@@ -1052,6 +1075,8 @@ public class TudeySceneView extends DynamicScope
         _entrySprites.clear();
         _actorSprites.clear();
         _mergedSprites.clear();
+        _updatedMerged.clear();
+        clearPaging();
     }
 
     // documentation inherited from interface Tickable
@@ -1128,6 +1153,14 @@ public class TudeySceneView extends DynamicScope
             _camhand.updatePosition();
         }
 
+        // page entry sprites in and out around the camera target
+        if (_loadingWindow == null && _sceneModel != null && isPaging()) {
+            updatePaging();
+        }
+
+        // remerge the models whose components changed during the frame
+        flushMergedUpdates();
+
         // tick the scene
         tick = System.nanoTime();
         _scene.tick(_loadingWindow == null ? elapsed : 0f);
@@ -1181,7 +1214,9 @@ public class TudeySceneView extends DynamicScope
     // documentation inherited from interface TudeySceneModel.Observer
     public void entryAdded (Entry entry)
     {
-        addEntrySprite(entry);
+        if (!isPaging() || indexEntry(entry, _sceneModel.getConfigManager())) {
+            addEntrySprite(entry);
+        }
     }
 
     // documentation inherited from interface TudeySceneModel.Observer
@@ -1189,9 +1224,16 @@ public class TudeySceneView extends DynamicScope
     {
         addPreloads(nentry);
         Object key = nentry.getKey();
+        boolean resident = !isPaging() || indexEntry(nentry, _sceneModel.getConfigManager());
         EntrySprite sprite = _entrySprites.get(key);
         if (sprite != null) {
-            sprite.update(nentry);
+            if (resident) {
+                sprite.update(nentry);
+            } else {
+                // the entry has moved out of the resident chunks
+                _entrySprites.remove(key);
+                sprite.dispose();
+            }
             return;
         }
         if (_loadingEntries != null) {
@@ -1199,11 +1241,22 @@ public class TudeySceneView extends DynamicScope
             for (int ii = 0, nn = _loadingEntries.size(); ii < nn; ii++) {
                 Entry entry = _loadingEntries.get(ii);
                 if (entry.getKey().equals(key)) {
-                    _loadingEntries.set(ii, nentry);
+                    if (resident) {
+                        _loadingEntries.set(ii, nentry);
+                    } else {
+                        _loadingEntries.remove(ii);
+                    }
                     return;
                 }
             }
         }
+        if (isPaging()) {
+            // the sprite was paged out or is waiting to be paged in
+            if (resident) {
+                addEntrySprite(nentry);
+            }
+            return;
+        }
         log.warning("Missing sprite to update.", "entry", nentry);
     }
 
@@ -1211,6 +1264,7 @@ public class TudeySceneView extends DynamicScope
     public void entryRemoved (Entry oentry)
     {
         Object key = oentry.getKey();
+        unindexEntry(key);
         EntrySprite sprite = _entrySprites.remove(key);
         if (sprite != null) {
             sprite.dispose();
@@ -1229,6 +1283,22 @@ public class TudeySceneView extends DynamicScope
         log.warning("Missing entry sprite to remove.", "entry", oentry);
     }
 
+    // documentation inherited from interface TudeySceneModel.BatchObserver
+    public void entriesChanged (TudeySceneModel.EntryBatch batch)
+    {
+        // the batch holds only the net changes, so entries that were updated several times are
+        // updated once and those that were added and removed again never get sprites
+        for (Entry oentry : batch.getRemoved()) {
+            entryRemoved(oentry);
+        }
+        for (Tuple<Entry, Entry> pair : batch.getUpdated()) {
+            entryUpdated(pair.left, pair.right);
+        }
+        for (Entry entry : batch.getAdded()) {
+            entryAdded(entry);
+        }
+    }
+
     // documentation inherited from interface OccupantObserver
     public void occupantEntered (OccupantInfo info)
     {
@@ -1429,7 +1499,7 @@ public class TudeySceneView extends DynamicScope
             (TudeySceneModel)_ctx.getSceneDirector().getScene().getSceneModel();
         Collection<Entry> entries = model.getEntries();
         if (_loadingEntries == null) {
-            _loadingEntries = Lists.newArrayList(entries);
+            _loadingEntries = isPaging() ? indexEntries(model) : Lists.newArrayList(entries);
             (_sceneModel = model).addObserver(this);
             _suppressMergeUpdates = true;
         }
@@ -1441,7 +1511,34 @@ public class TudeySceneView extends DynamicScope
         if (_loadingEntries.isEmpty()) {
             return 1f;
         }
-        return (float)_entrySprites.size() / entries.size();
+        int created = _entrySprites.size();
+        return (float)created / (created + _loadingEntries.size());
+    }
+
+    /**
+     * Notes that the components of a merged sprite have changed.  Rather than remerging the
+     * model immediately, we wait until the end of the frame so that multiple changes to the same
+     * block (as when painting or pasting) only require a single merge.
+     */
+    protected void mergedSpriteUpdated (Sprite sprite)
+    {
+        if (!_suppressMergeUpdates) {
+            _updatedMerged.add(sprite);
+        }
+    }
+
+    /**
+     * Remerges the models of any merged sprites updated since the last call.
+     */
+    protected void flushMergedUpdates ()
+    {
+        if (_updatedMerged.isEmpty()) {
+            return;
+        }
+        for (Sprite sprite : _updatedMerged) {
+            sprite.getModel().getConfig().wasUpdated();
+        }
+        _updatedMerged.clear();
     }
 
     /**
@@ -1595,6 +1692,208 @@ public class TudeySceneView extends DynamicScope
         return 2;
     }
 
+    /**
+     * Returns the size of the square chunks by which entry sprites are paged in and out around
+     * the camera target, or zero to create sprites for every entry up front.  The default is
+     * taken from the <code>page_chunk_size</code> system property (zero if unset).
+     */
+    protected float getPageChunkSize ()
+    {
+        return PAGE_CHUNK_SIZE;
+    }
+
+    /**
+     * Returns the radius, in chunks, around the chunk containing the camera target within which
+     * entry sprites are kept resident when paging.  Chunks are not paged out until they are
+     * more than {@link #PAGE_HYSTERESIS} chunks beyond this radius.
+     */
+    protected int getPageRadius ()
+    {
+        return 2;
+    }
+
+    /**
+     * Checks whether we page entry sprites in and out rather than creating them all up front.
+     */
+    protected boolean isPaging ()
+    {
+        return getPageChunkSize() > 0f;
+    }
+
+    /**
+     * Indexes all of the entries in the supplied model by chunk.
+     *
+     * @return the entries whose sprites should currently be resident.
+     */
+    protected List<Entry> indexEntries (TudeySceneModel model)
+    {
+        _chunkEntries.clear();
+        _entryChunks.clear();
+        List<Entry> resident = Lists.newArrayList();
+        ConfigManager cfgmgr = model.getConfigManager();
+        for (Entry entry : model.getEntries()) {
+            if (indexEntry(entry, cfgmgr)) {
+                resident.add(entry);
+            }
+        }
+        return resident;
+    }
+
+    /**
+     * (Re)indexes the specified entry by the chunk containing the center of its bounds.  Global
+     * entries and those larger than a chunk are not indexed and are always resident.
+     *
+     * @return whether the entry's sprite should currently be resident.
+     */
+    protected boolean indexEntry (Entry entry, ConfigManager cfgmgr)
+    {
+        Object key = entry.getKey();
+        unindexEntry(key);
+        entry.getBounds(cfgmgr, _pageBounds);
+        float size = getPageChunkSize();
+        if (_pageBounds.isEmpty() || _pageBounds.getLongestEdge() > size) {
+            return true;
+        }
+        Vector2f center = _pageBounds.getCenter(_pageVector);
+        Coord coord = new Coord(
+            FloatMath.ifloor(center.x / size), FloatMath.ifloor(center.y / size));
+        _entryChunks.put(key, coord);
+        Set<Object> keys = _chunkEntries.get(coord);
+        if (keys == null) {
+            _chunkEntries.put(coord, keys = Sets.newHashSet());
+        }
+        keys.add(key);
+        return _residentChunks.contains(coord);
+    }
+
+    /**
+     * Removes the specified entry from the chunk index, if present.
+     */
+    protected void unindexEntry (Object key)
+    {
+        Coord coord = _entryChunks.remove(key);
+        if (coord != null) {
+            Set<Object> keys = _chunkEntries.get(coord);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                _chunkEntries.remove(coord);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the sprite for the entry with the specified key should be resident.
+     */
+    protected boolean isResident (Object key)
+    {
+        Coord coord = _entryChunks.get(key);
+        return coord == null || _residentChunks.contains(coord);
+    }
+
+    /**
+     * Pages chunks in and out according to the camera target and continues creating the
+     * sprites of any newly resident entries.
+     */
+    protected void updatePaging ()
+    {
+        Vector3f target = _camhand.getTarget();
+        updatePageCenter(target.x, target.y);
+        if (_pendingEntries.isEmpty()) {
+            return;
+        }
+        if (_pagePreloads == null) {
+            List<Entry> entries = Lists.newArrayListWithCapacity(_pendingEntries.size());
+            for (Object key : _pendingEntries) {
+                Entry entry = _sceneModel.getEntry(key);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            _sceneModel.getPreloads(
+                _pagePreloads = new PreloadableSet(_ctx), new Vector2f(target.x, target.y),
+                entries);
+        }
+
+        // the first batch starts decoding the images in the background, so we need only wait
+        // for the rest of the resources
+        if (_pagePreloads.preloadBatch(PAGE_BATCH_DURATION) < 1f) {
+            return;
+        }
+        long end = System.currentTimeMillis() + PAGE_BATCH_DURATION;
+        for (int ii = _pendingEntries.size() - 1;
+                ii >= 0 && System.currentTimeMillis() < end; ii--) {
+            Object key = _pendingEntries.remove(ii);
+            Entry entry = _sceneModel.getEntry(key);
+            if (entry != null && isResident(key) && !_entrySprites.containsKey(key)) {
+                addEntrySprite(entry);
+            }
+        }
+        if (_pendingEntries.isEmpty()) {
+            _pagePreloads = null;
+        }
+    }
+
+    /**
+     * Updates the set of resident chunks for a camera target at the specified location, queueing
+     * the entries of newly resident chunks and disposing of the sprites in chunks that have
+     * moved out of range.
+     */
+    protected void updatePageCenter (float x, float y)
+    {
+        float size = getPageChunkSize();
+        int cx = FloatMath.ifloor(x / size), cy = FloatMath.ifloor(y / size);
+        if (_pageCenter != null && _pageCenter.x == cx && _pageCenter.y == cy) {
+            return;
+        }
+        _pageCenter = new Coord(cx, cy);
+
+        // page out the chunks beyond the hysteresis band
+        int radius = getPageRadius();
+        for (Iterator<Coord> it = _residentChunks.iterator(); it.hasNext(); ) {
+            Coord coord = it.next();
+            if (Math.max(Math.abs(coord.x - cx), Math.abs(coord.y - cy)) >
+                    radius + PAGE_HYSTERESIS) {
+                it.remove();
+                Set<Object> keys = _chunkEntries.get(coord);
+                if (keys != null) {
+                    for (Object key : keys) {
+                        EntrySprite sprite = _entrySprites.remove(key);
+                        if (sprite != null) {
+                            sprite.dispose();
+                        }
+                    }
+                }
+            }
+        }
+
+        // page in the chunks within the radius
+        for (int yy = cy - radius; yy <= cy + radius; yy++) {
+            for (int xx = cx - radius; xx <= cx + radius; xx++) {
+                Coord coord = new Coord(xx, yy);
+                if (_residentChunks.add(coord)) {
+                    Set<Object> keys = _chunkEntries.get(coord);
+                    if (keys != null) {
+                        _pendingEntries.addAll(keys);
+                        _pagePreloads = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears out all of the paging state.
+     */
+    protected void clearPaging ()
+    {
+        _chunkEntries.clear();
+        _entryChunks.clear();
+        _residentChunks.clear();
+        _pageCenter = null;
+        _pendingEntries.clear();
+        _pagePreloads = null;
+    }
+
     /**
      * Notes a jitter value (difference between elapsed time on server and elapsed time on client
      * between two successive updates).
@@ -1841,12 +2140,39 @@ public class TudeySceneView extends DynamicScope
     /** When set, indicates that we should hold off on updating merged sprites. */
     protected boolean _suppressMergeUpdates;
 
+    /** Merged sprites whose components have changed since the last remerge. */
+    protected Set<Sprite> _updatedMerged = Sets.newLinkedHashSet();
+
     /** The sprite that the camera is tracking. */
     protected ActorSprite _targetSprite;
 
     /** The sprite that the user is controlling. */
     protected ActorSprite _controlledSprite;
 
+    /** The keys of the paged entries in each chunk. */
+    protected Map<Coord, Set<Object>> _chunkEntries = Maps.newHashMap();
+
+    /** The chunks of the paged entries mapped by key. */
+    protected Map<Object, Coord> _entryChunks = Maps.newHashMap();
+
+    /** The chunks whose entry sprites are resident (or waiting to be created). */
+    protected Set<Coord> _residentChunks = Sets.newHashSet();
+
+    /** The chunk containing the camera target when we last paged, if any. */
+    protected Coord _pageCenter;
+
+    /** The keys of the entries whose sprites are waiting to be paged in. */
+    protected List<Object> _pendingEntries = Lists.newArrayList();
+
+    /** The resources to preload for the pending entries. */
+    protected PreloadableSet _pagePreloads;
+
+    /** Used to find the chunks of entries. */
+    protected Rect _pageBounds = new Rect();
+
+    /** Used to find the chunks of entries. */
+    protected Vector2f _pageVector = new Vector2f();
+
     /** Thre preferred zoom level. */
     protected int _zoom = 0;
 
@@ -1889,6 +2215,15 @@ public class TudeySceneView extends DynamicScope
     /** The amount of time to spend on each batch when loading. */
     protected static final long BATCH_LOAD_DURATION = 50L;
 
+    /** The default size of the chunks by which entry sprites are paged, or zero for none. */
+    protected static final int PAGE_CHUNK_SIZE = Integer.getInteger("page_chunk_size", 0);
+
+    /** The amount of time to spend per frame on preloading or creating paged sprites. */
+    protected static final long PAGE_BATCH_DURATION = 5L;
+
+    /** The number of chunks beyond the page radius that chunks must be before paged out. */
+    protected static final int PAGE_HYSTERESIS = 1;
+
     /** The percentage of load progress devoted to preloading. */
     protected static final float PRELOAD_PERCENT = 0.4f;
 
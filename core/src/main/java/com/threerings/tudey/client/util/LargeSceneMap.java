@@ -107,6 +107,9 @@ public class LargeSceneMap
         float sx, float sy, float swidth, float sheight, int tx, int ty,
         int twidth, int theight, float alpha, Image mask)
     {
+        // apply the changes made since the last frame
+        flushUpdates();
+
         Renderer renderer = _ctx.getRenderer();
         renderer.setColorState(alpha, alpha, alpha, alpha);
 
@@ -194,18 +197,21 @@ public class LargeSceneMap
 
     public void addEntrance (int x, int y)
     {
-        _entrances.add(new Coord(x, y));
+        if (_entrances.add(new Coord(x, y))) {
+            _retraverse = true;
+        }
     }
 
     /**
-     * Updates the textures and buffers at the coordinates.
+     * Updates the textures and buffers at the coordinates (along with any other pending
+     * changes).
      */
     public void updateLocations (Set<Coord> coords)
     {
         for (Coord coord : coords) {
-            updateBuffer(coord);
+            _dirty.add(new Coord(coord));
         }
-        createTextures();
+        flushUpdates();
     }
 
     /**
@@ -219,6 +225,9 @@ public class LargeSceneMap
         _missing.clear();
         _types.clear();
         _entrances.clear();
+        _dirty.clear();
+        _dirtyRegions.clear();
+        _retraverse = false;
     }
 
     /**
@@ -229,25 +238,13 @@ public class LargeSceneMap
         if (_entrances.isEmpty()) {
             return;
         }
-        _traversable.clear();
-
-        ArrayDeque<Coord> queue = new ArrayDeque<Coord>();
-
-        queue.addAll(_entrances);
+        _retraverse = false;
+        Set<Coord> otraversable = _traversable;
+        _traversable = Sets.newHashSet();
+        traverse(new ArrayDeque<Coord>(_entrances), null);
 
-        Coord coord = queue.poll();
-        while (coord != null) {
-            for (int ii = 0; ii < 4; ii++) {
-                Coord newCoord = new Coord(coord.x + XS[ii], coord.y + YS[ii]);
-                Integer flag = _types.get(newCoord);
-                if (flag == null) {
-                    logMissingTile(newCoord);
-                } else if (flag.equals(0) && _traversable.add(newCoord)) {
-                    queue.add(newCoord);
-                }
-            }
-            coord = queue.poll();
-        }
+        // repaint the locations whose traversability changed
+        _dirty.addAll(Sets.symmetricDifference(otraversable, _traversable));
     }
 
     // documentation inherited from interface PlaceView
@@ -269,7 +266,6 @@ public class LargeSceneMap
     public void entryAdded (TudeySceneModel.Entry entry)
     {
         addEntry(entry);
-        updateLocations(_types.keySet());
     }
 
     // documentation inherited from interface TudeySceneModel.Observer
@@ -277,14 +273,12 @@ public class LargeSceneMap
     {
         removeEntry(oentry);
         addEntry(nentry);
-        updateLocations(_types.keySet());
     }
 
     // documentation inherited from interface TudeySceneModel.Observer
     public void entryRemoved (TudeySceneModel.Entry oentry)
     {
         removeEntry(oentry);
-        updateLocations(_types.keySet());
     }
 
     /** Returns the set of missing tiles. */
@@ -348,8 +342,7 @@ public class LargeSceneMap
             for (int yy = _region.y, yymax = yy + _region.height; yy < yymax; yy++) {
                 for (int xx = _region.x, xxmax = xx + _region.width; xx < xxmax; xx++) {
                     int flags = _flagMask & tentry.getCollisionFlags(config, xx, yy);
-                    int type = Math.max(_types.get(xx, yy), flags);
-                    _types.put(xx, yy, type);
+                    setType(xx, yy, Math.max(_types.get(xx, yy), flags));
                 }
             }
             return;
@@ -383,8 +376,7 @@ public class LargeSceneMap
         for (int yy = miny; yy <= maxy; yy++) {
             for (int xx = minx; xx <= maxx; xx++) {
                 if (intersects(xx, yy, shape)) {
-                    int type = Math.max(_types.get(xx, yy), flags);
-                    _types.put(xx, yy, type);
+                    setType(xx, yy, Math.max(_types.get(xx, yy), flags));
                 }
             }
         }
@@ -453,7 +445,103 @@ public class LargeSceneMap
             }
         }
         _elements.clear();
-        _types.put(x, y, type);
+        setType(x, y, type);
+    }
+
+    /**
+     * Sets the type of the specified location, noting it as dirty if the type changed.
+     */
+    protected void setType (int x, int y, int type)
+    {
+        if (_types.put(x, y, type) != type) {
+            _dirty.add(new Coord(x, y));
+        }
+    }
+
+    /**
+     * Updates the traversable set, buffers and textures for the locations changed since the
+     * last call.
+     */
+    protected void flushUpdates ()
+    {
+        if (_dirty.isEmpty() && !_retraverse) {
+            return;
+        }
+        updateTraversable();
+        for (Coord coord : _dirty) {
+            updateBuffer(coord);
+        }
+        _dirty.clear();
+        createTextures();
+    }
+
+    /**
+     * Updates the traversable set to reflect the dirty locations.  New floor adjoining the
+     * traversable region is added incrementally; we only traverse the whole map again if an
+     * entrance was added or a traversable location stopped being floor.
+     */
+    protected void updateTraversable ()
+    {
+        if (_entrances.isEmpty()) {
+            return;
+        }
+        ArrayDeque<Coord> queue = new ArrayDeque<Coord>();
+        for (Coord coord : _dirty) {
+            boolean floor = (_types.get(coord.x, coord.y) == 0);
+            if (_traversable.contains(coord)) {
+                _retraverse |= !floor;
+            } else if (floor && isConnected(coord)) {
+                _traversable.add(coord);
+                queue.add(coord);
+            }
+        }
+        if (_retraverse) {
+            populateTraversable();
+            return;
+        }
+        List<Coord> added = Lists.newArrayList();
+        traverse(queue, added);
+        _dirty.addAll(added);
+    }
+
+    /**
+     * Checks whether the specified location adjoins an entrance or a traversable location.
+     */
+    protected boolean isConnected (Coord coord)
+    {
+        for (int ii = 0; ii < 4; ii++) {
+            _coord.set(coord.x + XS[ii], coord.y + YS[ii]);
+            if (_traversable.contains(_coord) || _entrances.contains(_coord)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Does a breadth-first traversal of the ground tiles from the locations in the queue, adding
+     * the locations reached to the traversable set.
+     *
+     * @param added if non-null, a collection to hold the newly traversable locations.
+     */
+    protected void traverse (ArrayDeque<Coord> queue, List<Coord> added)
+    {
+        Coord coord = queue.poll();
+        while (coord != null) {
+            for (int ii = 0; ii < 4; ii++) {
+                Coord newCoord = new Coord(coord.x + XS[ii], coord.y + YS[ii]);
+                Integer flag = _types.get(newCoord);
+                if (flag == null) {
+                    logMissingTile(newCoord);
+                } else if (flag.equals(0) && _traversable.add(newCoord)) {
+                    queue.add(newCoord);
+                    if (added != null) {
+                        added.add(newCoord);
+                    }
+                }
+            }
+            coord = queue.poll();
+        }
     }
 
     /**
@@ -470,25 +558,63 @@ public class LargeSceneMap
 
         putColor(getBuffer(tx, ty), _types.get(x, y), bx, by,
             getAlphaAtLocation(coord), _traversable.contains(coord));
+
+        // grow the block's dirty region to include the location
+        Rectangle region = _dirtyRegions.get(_coord.set(tx, ty));
+        if (region == null) {
+            _dirtyRegions.put(new Coord(tx, ty), new Rectangle(bx, by, 1, 1));
+        } else {
+            region.add(bx, by, 1, 1);
+        }
     }
 
     /**
-     * Creates all the textures.
+     * Creates the textures for new blocks and uploads the dirty regions of existing ones.
      */
     protected void createTextures ()
     {
-        for (Map.Entry<Coord, ByteBuffer> entry : _buffers.entrySet()) {
-            Texture2D texture = _textures.get(entry.getKey());
+        for (Map.Entry<Coord, Rectangle> entry : _dirtyRegions.entrySet()) {
+            Coord coord = entry.getKey();
+            ByteBuffer buf = _buffers.get(coord);
+            Texture2D texture = _textures.get(coord);
             if (texture == null) {
                 texture = new Texture2D(_ctx.getRenderer());
                 texture.setFilters(GL11.GL_NEAREST, GL11.GL_NEAREST);
                 texture.setWrap(GL11.GL_CLAMP, GL11.GL_CLAMP);
-                _textures.put(entry.getKey(), texture);
+                texture.setImage(
+                    0, GL11.GL_RGBA, getBufferWidth(), getBufferWidth(), false,
+                    GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
+                _textures.put(coord, texture);
+                continue;
             }
-            texture.setImage(
-                0, GL11.GL_RGBA, getBufferWidth(), getBufferWidth(), false,
-                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, entry.getValue());
+            Rectangle region = entry.getValue();
+            texture.setSubimage(
+                0, region.x, region.y, region.width, region.height,
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, getRegionData(buf, region));
         }
+        _dirtyRegions.clear();
+    }
+
+    /**
+     * Copies the specified region of a block buffer into the shared region buffer.
+     */
+    protected ByteBuffer getRegionData (ByteBuffer buf, Rectangle region)
+    {
+        ByteBuffer data = (_regionBuf == null) ? null : _regionBuf.get();
+        if (data == null || data.capacity() < getBufferSize()) {
+            _regionBuf = new SoftReference<ByteBuffer>(
+                data = BufferUtils.createByteBuffer(getBufferSize()));
+        }
+        data.clear();
+        int stride = getBufferWidth() * 4, length = region.width * 4;
+        for (int yy = region.y, yymax = yy + region.height; yy < yymax; yy++) {
+            int offset = yy * stride + region.x * 4;
+            buf.limit(offset + length).position(offset);
+            data.put(buf);
+        }
+        buf.clear();
+        data.flip();
+        return data;
     }
 
     /**
@@ -647,6 +773,18 @@ public class LargeSceneMap
     /** Region object to reuse. */
     protected Rectangle _region = new Rectangle();
 
+    /** The locations whose type, traversability or color have changed since the last flush. */
+    protected Set<Coord> _dirty = Sets.newHashSet();
+
+    /** The dirty region of each block's buffer awaiting upload. */
+    protected Map<Coord, Rectangle> _dirtyRegions = Maps.newHashMap();
+
+    /** Set when we must traverse the whole map again on the next flush. */
+    protected boolean _retraverse;
+
+    /** Buffer used to upload dirty regions. */
+    protected SoftReference<ByteBuffer> _regionBuf;
+
     /** Used to store tile shapes for intersecting testing. */
     protected Polygon _quad = new Polygon(4);
 
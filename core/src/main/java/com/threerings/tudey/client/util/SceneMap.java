@@ -108,6 +108,9 @@ public class SceneMap
         float sx, float sy, float swidth, float sheight, int tx, int ty,
         int twidth, int theight, float alpha, Image mask)
     {
+        // upload the changes made since the last frame
+        flushTextures();
+
         Renderer renderer = _ctx.getRenderer();
 
         // prepare the mask image if any
@@ -216,6 +219,7 @@ public class SceneMap
     public void didLeavePlace (PlaceObject plobj)
     {
         _sceneModel.removeObserver(this);
+        _dirtyRegions.clear();
     }
 
     // documentation inherited from interface TudeySceneModel.Observer
@@ -425,21 +429,51 @@ public class SceneMap
     }
 
     /**
-     * Updates the texture at the specified coordinates.
+     * Notes that the texture at the specified coordinates must be updated.  Changes are
+     * coalesced into a dirty region per texture and uploaded by {@link #flushTextures}.
      */
     protected void updateTexture (int x, int y, int type)
     {
         int tx = x >> getTexturePot(), ty = y >> getTexturePot();
-        Texture2D texture = _textures.get(_coord.set(tx, ty));
-        if (texture == null) {
-            buildTexture(tx, ty);
+        int bx = x & getTextureMask(), by = y & getTextureMask();
+        Rectangle region = _dirtyRegions.get(_coord.set(tx, ty));
+        if (region == null) {
+            _dirtyRegions.put(new Coord(tx, ty), new Rectangle(bx, by, 1, 1));
+        } else {
+            region.add(bx, by, 1, 1);
+        }
+    }
+
+    /**
+     * Builds the textures for new blocks and uploads the dirty regions of existing ones.
+     */
+    protected void flushTextures ()
+    {
+        if (_dirtyRegions.isEmpty()) {
             return;
         }
-        ByteBuffer buf = getBuffer(4);
-        putColor(buf, type);
-        buf.rewind();
-        texture.setSubimage(
-            0, x & getTextureMask(), y & getTextureMask(), 1, 1, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
+        for (Map.Entry<Coord, Rectangle> entry : _dirtyRegions.entrySet()) {
+            Coord coord = entry.getKey();
+            Texture2D texture = _textures.get(coord);
+            if (texture == null) {
+                buildTexture(coord.x, coord.y);
+                continue;
+            }
+            Rectangle region = entry.getValue();
+            ByteBuffer buf = getBuffer(region.width * region.height * 4);
+            int xmin = (coord.x << getTexturePot()) + region.x;
+            int ymin = (coord.y << getTexturePot()) + region.y;
+            for (int yy = ymin, yymax = yy + region.height; yy < yymax; yy++) {
+                for (int xx = xmin, xxmax = xx + region.width; xx < xxmax; xx++) {
+                    putColor(buf, _types.get(xx, yy));
+                }
+            }
+            buf.rewind();
+            texture.setSubimage(
+                0, region.x, region.y, region.width, region.height,
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
+        }
+        _dirtyRegions.clear();
     }
 
     /**
@@ -543,6 +577,9 @@ public class SceneMap
     /** Buffer to reuse. */
     protected SoftReference<ByteBuffer> _buf;
 
+    /** The dirty region of each texture awaiting upload. */
+    protected Map<Coord, Rectangle> _dirtyRegions = Maps.newHashMap();
+
     /** Holds elements during intersection testing. */
     protected List<SpaceElement> _elements = Lists.newArrayList();
 
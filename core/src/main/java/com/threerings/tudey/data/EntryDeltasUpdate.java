@@ -0,0 +1,111 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.data;
+
+import com.threerings.whirled.data.SceneModel;
+import com.threerings.whirled.data.SceneUpdate;
+
+import com.threerings.delta.Delta;
+
+import com.threerings.tudey.data.TudeySceneModel.Entry;
+
+import static com.threerings.tudey.Log.log;
+
+/**
+ * A scene update that is broadcast when entries have been added to, removed from, or updated
+ * within the scene.  Unlike {@link ModifyEntriesUpdate}, entries updated in place are
+ * transmitted as {@link Delta}s containing only the changed fields.
+ */
+public class EntryDeltasUpdate extends SceneUpdate
+{
+    /** The entries added to the scene. */
+    public Entry[] added;
+
+    /** The entries replaced with entries of a different class. */
+    public Entry[] updated;
+
+    /** The keys of the entries modified by {@link #deltas}. */
+    public Object[] deltaKeys;
+
+    /** The deltas to apply to the entries identified by {@link #deltaKeys}. */
+    public Delta[] deltas;
+
+    /** The keys of the entries removed from the scene. */
+    public Object[] removed;
+
+    /**
+     * Initializes this update with all necessary data.
+     */
+    public void init (
+        int targetId, int targetVersion, Entry[] added, Entry[] updated,
+        Object[] deltaKeys, Delta[] deltas, Object[] removed)
+    {
+        super.init(targetId, targetVersion);
+        this.added = added;
+        this.updated = updated;
+        this.deltaKeys = deltaKeys;
+        this.deltas = deltas;
+        this.removed = removed;
+    }
+
+    @Override
+    public void apply (SceneModel model)
+    {
+        super.apply(model);
+
+        // apply the changes as a single batch
+        TudeySceneModel tsmodel = (TudeySceneModel)model;
+        tsmodel.startBatch();
+        try {
+            // remove the removed entries first so that a key cannot be removed after being re-added
+            for (Object key : removed) {
+                tsmodel.removeEntry(key);
+            }
+
+            // add the new entries (their ids were assigned when they were queued)
+            for (Entry entry : added) {
+                tsmodel.addEntry(entry, false);
+            }
+
+            // update the replaced entries
+            for (Entry entry : updated) {
+                tsmodel.updateEntry(entry);
+            }
+
+            // apply the deltas to the modified entries
+            for (int ii = 0; ii < deltaKeys.length; ii++) {
+                Entry oentry = tsmodel.getEntry(deltaKeys[ii]);
+                if (oentry == null) {
+                    log.warning("Missing entry for delta.", "key", deltaKeys[ii]);
+                    continue;
+                }
+                tsmodel.updateEntry((Entry)deltas[ii].apply(oentry));
+            }
+        } finally {
+            tsmodel.endBatch();
+        }
+    }
+}
@@ -67,20 +67,26 @@ public class ModifyEntriesUpdate extends SceneUpdate
     {
         super.apply(model);
 
-        // add the new entries
+        // apply the changes as a single batch
         TudeySceneModel tsmodel = (TudeySceneModel)model;
-        for (Entry entry : added) {
-            tsmodel.addEntry(entry);
-        }
+        tsmodel.startBatch();
+        try {
+            // add the new entries
+            for (Entry entry : added) {
+                tsmodel.addEntry(entry);
+            }
 
-        // update the updated entries
-        for (Entry entry : updated) {
-            tsmodel.updateEntry(entry);
-        }
+            // update the updated entries
+            for (Entry entry : updated) {
+                tsmodel.updateEntry(entry);
+            }
 
-        // remove the removed entries
-        for (Object key : removed) {
-            tsmodel.removeEntry(key);
+            // remove the removed entries
+            for (Object key : removed) {
+                tsmodel.removeEntry(key);
+            }
+        } finally {
+            tsmodel.endBatch();
         }
     }
 }
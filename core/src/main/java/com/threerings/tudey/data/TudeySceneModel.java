@@ -25,15 +25,21 @@
 
 package com.threerings.tudey.data;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 
 import java.lang.ref.SoftReference;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import java.util.AbstractCollection;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -57,6 +63,7 @@ import com.samskivert.util.ArrayUtil;
 import com.samskivert.util.HashIntSet;
 import com.samskivert.util.Interator;
 import com.samskivert.util.ObserverList;
+import com.samskivert.util.StringUtil;
 import com.samskivert.util.Tuple;
 
 import com.threerings.io.ObjectInputStream;
@@ -67,6 +74,7 @@ import com.threerings.whirled.data.SceneModel;
 
 import com.threerings.config.ConfigManager;
 import com.threerings.config.ConfigReference;
+import com.threerings.config.ManagedConfig;
 import com.threerings.editor.Editable;
 import com.threerings.editor.util.PropertyUtil;
 import com.threerings.export.Exportable;
@@ -168,6 +176,68 @@ public class TudeySceneModel extends SceneModel
         public void entryLayerWasSet (Object key, int layer);
     }
 
+    /**
+     * An extended Observer interface for observers that would rather receive the changes made
+     * between {@link #startBatch} and {@link #endBatch} as a single coalesced event.  Batch
+     * observers receive no individual entry notifications while a batch is in progress.
+     */
+    public interface BatchObserver extends Observer
+    {
+        /**
+         * Notes that a batch of changes has been applied to the scene.
+         */
+        public void entriesChanged (EntryBatch batch);
+    }
+
+    /**
+     * The net changes made to the scene over the course of a batch.  An entry that was added and
+     * then removed within the batch appears in none of the lists, and an entry that was updated
+     * several times appears once, paired with its state before the batch began.
+     */
+    public static class EntryBatch
+    {
+        /**
+         * Returns the entries added during the batch.
+         */
+        public List<Entry> getAdded ()
+        {
+            return _added;
+        }
+
+        /**
+         * Returns the (old, new) pairs of the entries updated during the batch.
+         */
+        public List<Tuple<Entry, Entry>> getUpdated ()
+        {
+            return _updated;
+        }
+
+        /**
+         * Returns the entries removed during the batch.
+         */
+        public List<Entry> getRemoved ()
+        {
+            return _removed;
+        }
+
+        /**
+         * Checks whether the batch contains no changes.
+         */
+        public boolean isEmpty ()
+        {
+            return _added.isEmpty() && _updated.isEmpty() && _removed.isEmpty();
+        }
+
+        /** The added entries. */
+        protected List<Entry> _added = Lists.newArrayList();
+
+        /** The updated entries. */
+        protected List<Tuple<Entry, Entry>> _updated = Lists.newArrayList();
+
+        /** The removed entries. */
+        protected List<Entry> _removed = Lists.newArrayList();
+    }
+
     /**
      * Used to select sprites according to their floor flags.
      */
@@ -1326,17 +1396,22 @@ public class TudeySceneModel extends SceneModel
             return;
         }
         _cfgmgr.init("scene", cfgmgr);
+        createElements();
+    }
 
-        // create the tile shadows now that we have the config manager
-        for (CoordIntEntry entry : _tiles.coordIntEntrySet()) {
-            TileEntry tentry = decodeTileEntry(entry.getKey(), entry.getIntValue());
-            createShadow(tentry);
-        }
-
-        // likewise with the shapes
-        for (Entry entry : _entries.values()) {
-            addElement(entry);
+    /**
+     * Initializes the model using a configuration manager shared with all other models whose
+     * embedded configurations are identical to this one's (for instance, the many resolved
+     * instances of a single scene on the server).  The shared manager must be treated as
+     * read-only, so this should not be used for models that will be edited.
+     */
+    public void initShared (ConfigManager cfgmgr)
+    {
+        if (_cfgmgr.isInitialized()) {
+            return;
         }
+        _cfgmgr = getSharedConfigManager(cfgmgr, _cfgmgr);
+        createElements();
     }
 
     /**
@@ -1363,6 +1438,62 @@ public class TudeySceneModel extends SceneModel
         _observers.remove(observer);
     }
 
+    /**
+     * Starts a batch of changes.  Until the matching call to {@link #endBatch}, {@link
+     * BatchObserver}s will not be notified of individual changes; instead, they will receive
+     * the net result of the batch in a single {@link BatchObserver#entriesChanged} call.  Batches
+     * may be nested, in which case the event is delivered when the outermost batch ends.
+     */
+    public void startBatch ()
+    {
+        _batchDepth++;
+    }
+
+    /**
+     * Ends a batch of changes started with {@link #startBatch}.
+     */
+    public void endBatch ()
+    {
+        Preconditions.checkState(_batchDepth > 0, "No batch in progress");
+        if (--_batchDepth > 0) {
+            return;
+        }
+        // compare the original state of each touched entry with its current state
+        final EntryBatch batch = new EntryBatch();
+        for (Map.Entry<Object, Entry> entry : _batchOriginals.entrySet()) {
+            Entry oentry = entry.getValue(), nentry = getEntry(entry.getKey());
+            if (oentry == null) {
+                if (nentry != null) {
+                    batch._added.add(nentry);
+                }
+            } else if (nentry == null) {
+                batch._removed.add(oentry);
+            } else if (!oentry.equals(nentry)) {
+                batch._updated.add(new Tuple<Entry, Entry>(oentry, nentry));
+            }
+        }
+        _batchOriginals.clear();
+        if (batch.isEmpty()) {
+            return;
+        }
+        _observers.apply(new ObserverList.ObserverOp<Observer>() {
+            public boolean apply (Observer observer) {
+                if (observer instanceof BatchObserver) {
+                    ((BatchObserver)observer).entriesChanged(batch);
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Checks whether a batch of changes is in progress.
+     */
+    public boolean isBatching ()
+    {
+        return _batchDepth > 0;
+    }
+
     /**
      * Sets the scene's name and invalidates.
      */
@@ -1469,8 +1600,12 @@ public class TudeySceneModel extends SceneModel
     public boolean addEntry (final Entry entry, boolean assignId)
     {
         // assign id if appropriate
-        if (assignId && entry instanceof IdEntry) {
-            ((IdEntry)entry).setId(++_lastEntryId);
+        if (entry instanceof IdEntry) {
+            if (assignId) {
+                assignEntryId((IdEntry)entry);
+            } else {
+                _lastEntryId = Math.max(_lastEntryId, ((IdEntry)entry).getId());
+            }
         }
         // add to map
         Entry oentry = add(entry);
@@ -1480,15 +1615,26 @@ public class TudeySceneModel extends SceneModel
             return false;
         }
         // notify the observers and report success
+        noteBatchOriginal(entry.getKey(), null);
         _observers.apply(new ObserverList.ObserverOp<Observer>() {
             public boolean apply (Observer observer) {
-                observer.entryAdded(entry);
+                if (!(_batchDepth > 0 && observer instanceof BatchObserver)) {
+                    observer.entryAdded(entry);
+                }
                 return true;
             }
         });
         return true;
     }
 
+    /**
+     * Assigns a unique id to the supplied entry without adding it to the scene.
+     */
+    public void assignEntryId (IdEntry entry)
+    {
+        entry.setId(++_lastEntryId);
+    }
+
     /**
      * Updates an entry within the scene.
      *
@@ -1504,9 +1650,12 @@ public class TudeySceneModel extends SceneModel
             return null;
         }
         // notify the observers and return the old entry
+        noteBatchOriginal(oentry.getKey(), oentry);
         _observers.apply(new ObserverList.ObserverOp<Observer>() {
             public boolean apply (Observer observer) {
-                observer.entryUpdated(oentry, nentry);
+                if (!(_batchDepth > 0 && observer instanceof BatchObserver)) {
+                    observer.entryUpdated(oentry, nentry);
+                }
                 return true;
             }
         });
@@ -1528,15 +1677,29 @@ public class TudeySceneModel extends SceneModel
             return null;
         }
         // notify the observers and return the old entry
+        noteBatchOriginal(oentry.getKey(), oentry);
         _observers.apply(new ObserverList.ObserverOp<Observer>() {
             public boolean apply (Observer observer) {
-                observer.entryRemoved(oentry);
+                if (!(_batchDepth > 0 && observer instanceof BatchObserver)) {
+                    observer.entryRemoved(oentry);
+                }
                 return true;
             }
         });
         return oentry;
     }
 
+    /**
+     * If a batch is in progress, records the state of the identified entry before the batch
+     * touched it.
+     */
+    protected void noteBatchOriginal (Object key, Entry oentry)
+    {
+        if (_batchDepth > 0 && !_batchOriginals.containsKey(key)) {
+            _batchOriginals.put(key, oentry);
+        }
+    }
+
     /**
      * Determines whether the scene contains an entry with the supplied key.
      */
@@ -1913,9 +2076,35 @@ public class TudeySceneModel extends SceneModel
      */
     public void getPreloads (PreloadableSet preloads)
     {
-        for (Entry entry : getEntries()) {
+        getPreloads(preloads, null);
+    }
+
+    /**
+     * Adds the resources to preload for this scene model to the supplied set, prioritizing them
+     * by their distance from the specified focus (if non-null).
+     */
+    public void getPreloads (PreloadableSet preloads, Vector2f focus)
+    {
+        getPreloads(preloads, focus, getEntries());
+    }
+
+    /**
+     * Adds the resources to preload for the specified entries of this scene model to the
+     * supplied set, prioritizing them by their distance from the specified focus (if non-null).
+     */
+    public void getPreloads (
+        PreloadableSet preloads, Vector2f focus, Iterable<? extends Entry> entries)
+    {
+        float opriority = preloads.getPriority();
+        for (Entry entry : entries) {
+            if (focus != null) {
+                // global entries have no location, but are visible everywhere
+                preloads.setPriority((entry instanceof GlobalEntry) ?
+                    opriority : -entry.getTranslation(_cfgmgr).distance(focus));
+            }
             entry.getPreloads(_cfgmgr, preloads);
         }
+        preloads.setPriority(opriority);
     }
 
     /**
@@ -1954,8 +2143,10 @@ public class TudeySceneModel extends SceneModel
         out.write("name", name, "");
         out.write("version", version, 1);
         out.write("auxModels", auxModels, new AuxModel[0], AuxModel[].class);
-        out.write("entries", _entries.values().toArray(new Entry[_entries.size()]),
-            new Entry[0], Entry[].class);
+        if (_exportEntries) {
+            out.write("entries", _entries.values().toArray(new Entry[_entries.size()]),
+                new Entry[0], Entry[].class);
+        }
         if (_exportLayers) {
             int layerCount = _layers.size();
             out.write("layers", _layers.toArray(new String[layerCount]),
@@ -2035,15 +2226,20 @@ public class TudeySceneModel extends SceneModel
     }
 
     /**
-     * Custom write method for streaming.
+     * Custom write method for streaming.  The header (everything but the entries) and the entries
+     * are encoded and cached separately, and the entries in chunks, so that when a model that has
+     * already been streamed changes, only the changed parts need to be encoded again.
      */
     public void writeObject (ObjectOutputStream out)
         throws IOException
     {
-        // write the cached exported binary representation
-        byte[] data = getData();
-        out.writeInt(data.length);
-        out.write(data);
+        // write the cached header
+        byte[] header = getHeaderData();
+        out.writeInt(header.length);
+        out.write(header);
+
+        // then the cached entry chunks
+        out.write(getEntryData());
     }
 
     /**
@@ -2052,12 +2248,12 @@ public class TudeySceneModel extends SceneModel
     public void readObject (ObjectInputStream in)
         throws IOException
     {
-        // read the binary representation
-        byte[] data = new byte[in.readInt()];
-        in.read(data);
+        // read the binary representation of the header
+        byte[] header = new byte[in.readInt()];
+        in.readFully(header);
 
         // decode and copy its fields into this one
-        TudeySceneModel nmodel = (TudeySceneModel)ExportUtil.fromBytes(data);
+        TudeySceneModel nmodel = (TudeySceneModel)ExportUtil.fromBytes(header);
         DeepUtil.copy(nmodel, this);
         _tiles = nmodel._tiles;
         _tileConfigs = nmodel._tileConfigs;
@@ -2070,8 +2266,22 @@ public class TudeySceneModel extends SceneModel
         _layers = nmodel._layers;
         _layerMap = nmodel._layerMap;
 
-        // store the cached data
-        _data = new SoftReference<byte[]>(data);
+        // read and decode the entry chunks
+        for (int ii = 0, nn = in.readInt(); ii < nn; ii++) {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            Entry[] entries = (Entry[])ExportUtil.fromBytes(data);
+            if (entries == null) {
+                continue;
+            }
+            for (Entry entry : entries) {
+                _entries.put(entry.getKey(), entry);
+                _references.put(entry.getReference(), entry.getReference());
+                if (entry instanceof IdEntry) {
+                    _lastEntryId = Math.max(_lastEntryId, ((IdEntry)entry).getId());
+                }
+            }
+        }
     }
 
     /**
@@ -2091,13 +2301,60 @@ public class TudeySceneModel extends SceneModel
         return data;
     }
 
+    /**
+     * Returns the cached exported binary representation of everything in the model except the
+     * entries, which are streamed separately in chunks.
+     */
+    public byte[] getHeaderData ()
+    {
+        byte[] data = (_headerData == null) ? null : _headerData.get();
+        if (data == null) {
+            try {
+                _exportLayers = false;
+                _exportEntries = false;
+                _headerData = new SoftReference<byte[]>(data = ExportUtil.toBytes(this));
+            } finally {
+                _exportLayers = true;
+                _exportEntries = true;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns the cached streamed representation of the entries: the number of chunks followed
+     * by the length and data of each.
+     */
+    public byte[] getEntryData ()
+    {
+        byte[] data = (_entryData == null) ? null : _entryData.get();
+        if (data == null) {
+            List<EntryChunk> chunks = getEntryChunks();
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            DataOutputStream dout = new DataOutputStream(bout);
+            try {
+                dout.writeInt(chunks.size());
+                for (EntryChunk chunk : chunks) {
+                    dout.writeInt(chunk.data.length);
+                    dout.write(chunk.data);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e); // won't happen with a byte array stream
+            }
+            _entryData = new SoftReference<byte[]>(data = bout.toByteArray());
+        }
+        return data;
+    }
+
     /**
      * Invalidates any cached data in the model, forcing it to be recreated (and sets the dirty
-     * flag).
+     * flag).  Entry chunks whose entries have not changed will be reused.
      */
     public void invalidate ()
     {
         _data = null;
+        _headerData = null;
+        _entryData = null;
         _dirty = true;
     }
 
@@ -2855,6 +3112,83 @@ public class TudeySceneModel extends SceneModel
         return Preconditions.checkElementIndex(layer, _layers.size() + 1);
     }
 
+    /**
+     * Creates the shadows and space elements for the tiles and entries once the config manager
+     * has been initialized.
+     */
+    protected void createElements ()
+    {
+        // create the tile shadows now that we have the config manager
+        for (CoordIntEntry entry : _tiles.coordIntEntrySet()) {
+            TileEntry tentry = decodeTileEntry(entry.getKey(), entry.getIntValue());
+            createShadow(tentry);
+        }
+
+        // likewise with the shapes
+        for (Entry entry : _entries.values()) {
+            addElement(entry);
+        }
+    }
+
+    /**
+     * Returns the shared, initialized configuration manager for the supplied set of embedded
+     * configurations, initializing and registering the embedded manager if there is none yet.
+     */
+    protected static ConfigManager getSharedConfigManager (
+        ConfigManager parent, ConfigManager embedded)
+    {
+        // the key is a digest of the exported configs, so that it compares them by value without
+        // keeping them alive
+        String key;
+        try {
+            key = StringUtil.hexlate(
+                MessageDigest.getInstance("MD5").digest(ExportUtil.toBytes(embedded)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        return parent.getSharedChild(key, "scene", embedded);
+    }
+
+    /**
+     * Returns the list of entry chunks to stream.  Entries are grouped by region and type, and
+     * chunks whose entries have not changed since they were last encoded are reused.
+     */
+    protected List<EntryChunk> getEntryChunks ()
+    {
+        // group the entries by region and type
+        Map<Tuple<Coord, Class<?>>, List<Entry>> groups = Maps.newHashMap();
+        for (Entry entry : _entries.values()) {
+            Vector2f translation = entry.getTranslation(_cfgmgr);
+            Coord region = new Coord(
+                (int)FloatMath.floor(translation.x / CHUNK_REGION_SIZE),
+                (int)FloatMath.floor(translation.y / CHUNK_REGION_SIZE));
+            Tuple<Coord, Class<?>> key = new Tuple<Coord, Class<?>>(region, entry.getClass());
+            List<Entry> group = groups.get(key);
+            if (group == null) {
+                groups.put(key, group = Lists.newArrayList());
+            }
+            group.add(entry);
+        }
+
+        // create or reuse the chunks
+        Map<Tuple<Coord, Class<?>>, EntryChunk> ochunks =
+            (_entryChunks == null) ? null : _entryChunks.get();
+        Map<Tuple<Coord, Class<?>>, EntryChunk> nchunks = Maps.newHashMap();
+        List<EntryChunk> list = Lists.newArrayListWithCapacity(groups.size());
+        for (Map.Entry<Tuple<Coord, Class<?>>, List<Entry>> group : groups.entrySet()) {
+            Tuple<Coord, Class<?>> key = group.getKey();
+            List<Entry> entries = group.getValue();
+            EntryChunk chunk = (ochunks == null) ? null : ochunks.get(key);
+            if (chunk == null || !chunk.contains(entries)) {
+                chunk = new EntryChunk(entries);
+            }
+            nchunks.put(key, chunk);
+            list.add(chunk);
+        }
+        _entryChunks = new SoftReference<Map<Tuple<Coord, Class<?>>, EntryChunk>>(nchunks);
+        return list;
+    }
+
     /**
      * Extracts the tile configuration index from the supplied encoded tile.
      */
@@ -2871,6 +3205,41 @@ public class TudeySceneModel extends SceneModel
         return (value << 16) >> 18;
     }
 
+    /**
+     * A group of entries of the same type within one region, encoded for streaming.
+     */
+    protected static class EntryChunk
+    {
+        /** The encoded entries. */
+        public final byte[] data;
+
+        /**
+         * Creates and encodes a new chunk.
+         */
+        public EntryChunk (List<Entry> entries)
+        {
+            _entries = entries.toArray(new Entry[entries.size()]);
+            data = ExportUtil.toBytes(_entries);
+        }
+
+        /**
+         * Checks whether the chunk contains exactly the specified entries (by identity; entries
+         * are replaced rather than modified when updated).
+         */
+        public boolean contains (List<Entry> entries)
+        {
+            if (entries.size() != _entries.length) {
+                return false;
+            }
+            Set<Entry> set = Sets.newIdentityHashSet();
+            Collections.addAll(set, _entries);
+            return set.containsAll(entries);
+        }
+
+        /** The entries in the chunk. */
+        protected Entry[] _entries;
+    }
+
     /**
      * Represents a type of tile identified by an integer id.
      */
@@ -2953,6 +3322,10 @@ public class TudeySceneModel extends SceneModel
     @DeepOmit
     protected transient boolean _exportLayers = true;
 
+    /** Whether or not to include the entries when exporting. */
+    @DeepOmit
+    protected transient boolean _exportEntries = true;
+
     /** The names of each layer. Layer n is at index n-1. */
     @DeepOmit
     protected transient List<String> _layers = Lists.newArrayList();
@@ -3014,10 +3387,30 @@ public class TudeySceneModel extends SceneModel
     @DeepOmit
     protected transient ObserverList<Observer> _observers = ObserverList.newFastUnsafe();
 
+    /** The depth of nested batches in progress. */
+    @DeepOmit
+    protected transient int _batchDepth;
+
+    /** The state of each entry touched during the current batch before it was first touched. */
+    @DeepOmit
+    protected transient Map<Object, Entry> _batchOriginals = Maps.newLinkedHashMap();
+
     /** The cached exported representation of the scene model. */
     @DeepOmit
     protected transient SoftReference<byte[]> _data;
 
+    /** The cached exported representation of everything but the entries. */
+    @DeepOmit
+    protected transient SoftReference<byte[]> _headerData;
+
+    /** The cached streamed representation of the entry chunks. */
+    @DeepOmit
+    protected transient SoftReference<byte[]> _entryData;
+
+    /** The encoded entry chunks, mapped by region and type. */
+    @DeepOmit
+    protected transient SoftReference<Map<Tuple<Coord, Class<?>>, EntryChunk>> _entryChunks;
+
     /** Flags the scene model as having changed since the dirty bit was last cleared. */
     @DeepOmit
     protected transient boolean _dirty;
@@ -3049,4 +3442,7 @@ public class TudeySceneModel extends SceneModel
     /** Used to fine the floor. */
     @DeepOmit
     protected transient FloorPlaceableFilter _floorPlaceableFilter = new FloorPlaceableFilter();
+
+    /** The size of the regions by which entries are grouped for streaming. */
+    protected static final float CHUNK_REGION_SIZE = 64f;
 }
@@ -51,6 +51,7 @@ import com.samskivert.util.Randoms;
 import com.samskivert.util.RunAnywhere;
 import com.samskivert.util.RunQueue;
 import com.samskivert.util.StringUtil;
+import com.samskivert.util.Tuple;
 
 import com.threerings.presents.data.ClientObject;
 import com.threerings.presents.server.ClientManager;
@@ -74,6 +75,7 @@ import com.threerings.tudey.config.ActorConfig;
 import com.threerings.tudey.config.CameraConfig;
 import com.threerings.tudey.config.EffectConfig;
 import com.threerings.tudey.data.EntityKey;
+import com.threerings.tudey.data.EntryDeltasUpdate;
 import com.threerings.tudey.data.InputFrame;
 import com.threerings.tudey.data.TudeyBodyObject;
 import com.threerings.tudey.data.TudeyCodes;
@@ -81,6 +83,7 @@ import com.threerings.tudey.data.TudeySceneConfig;
 import com.threerings.tudey.data.TudeySceneMarshaller;
 import com.threerings.tudey.data.TudeySceneModel;
 import com.threerings.tudey.data.TudeySceneModel.Entry;
+import com.threerings.tudey.data.TudeySceneModel.IdEntry;
 import com.threerings.tudey.data.TudeySceneObject;
 import com.threerings.tudey.data.actor.Actor;
 import com.threerings.tudey.data.effect.Effect;
@@ -89,6 +92,7 @@ import com.threerings.tudey.server.logic.EffectLogic;
 import com.threerings.tudey.server.logic.EntryLogic;
 import com.threerings.tudey.server.logic.Logic;
 import com.threerings.tudey.server.logic.PawnLogic;
+import com.threerings.tudey.server.util.EntryUpdateQueue;
 import com.threerings.tudey.server.util.Pathfinder;
 import com.threerings.tudey.server.util.SceneTicker;
 import com.threerings.tudey.shape.Segment;
@@ -106,7 +110,7 @@ import static com.threerings.tudey.Log.log;
  * Manager for Tudey scenes.
  */
 public class TudeySceneManager extends SceneManager
-    implements TudeySceneProvider, TudeySceneModel.Observer,
+    implements TudeySceneProvider, TudeySceneModel.BatchObserver,
         ActorAdvancer.Environment, RunQueue, TudeyCodes
 {
     /**
@@ -306,6 +310,36 @@ public class TudeySceneManager extends SceneManager
         _tickParticipants.remove(participant);
     }
 
+    /**
+     * Queues an entry to be added to the scene, assigning it a unique id in the process if it is
+     * an {@link IdEntry}.  Queued changes are broadcast to the occupants (and applied to the scene
+     * model) together at the end of the current tick.
+     */
+    public void queueEntryAdd (Entry entry)
+    {
+        if (entry instanceof IdEntry) {
+            ((TudeySceneModel)_scene.getSceneModel()).assignEntryId((IdEntry)entry);
+        }
+        _entryUpdates.add(entry);
+    }
+
+    /**
+     * Queues an update to an existing scene entry.  Consecutive updates to the same entry within
+     * a tick are coalesced, and only the fields that differ from the current entry are sent.
+     */
+    public void queueEntryUpdate (Entry entry)
+    {
+        _entryUpdates.update(entry);
+    }
+
+    /**
+     * Queues the removal of a scene entry.
+     */
+    public void queueEntryRemove (Object key)
+    {
+        _entryUpdates.remove(key);
+    }
+
     /**
      * Adds an observer for actor events.
      */
@@ -587,7 +621,7 @@ public class TudeySceneManager extends SceneManager
     public Logic createLogic (String cname)
     {
         try {
-            return (Logic)_injector.getInstance(Class.forName(cname));
+            return (Logic)((TudeySceneRegistry)_screg).getLogicProvider(cname).get();
         } catch (Exception e) {
             log.warning("Failed to instantiate logic.", "class", cname, e);
             return null;
@@ -1195,6 +1229,34 @@ public class TudeySceneManager extends SceneManager
         removeLogic(oentry.getKey());
     }
 
+    // documentation inherited from interface TudeySceneModel.BatchObserver
+    public void entriesChanged (TudeySceneModel.EntryBatch batch)
+    {
+        for (Entry oentry : batch.getRemoved()) {
+            removeLogic(oentry.getKey());
+        }
+        for (Tuple<Entry, Entry> pair : batch.getUpdated()) {
+            removeLogic(pair.left.getKey());
+        }
+
+        // as when creating the logics initially, add first, then notify; the entries may be
+        // looking for other tagged entries in the same batch
+        List<Entry> entries = Lists.newArrayList(batch.getAdded());
+        for (Tuple<Entry, Entry> pair : batch.getUpdated()) {
+            entries.add(pair.right);
+        }
+        List<EntryLogic> logics = Lists.newArrayListWithCapacity(entries.size());
+        for (Entry entry : entries) {
+            EntryLogic logic = addLogic(entry, false);
+            if (logic != null) {
+                logics.add(logic);
+            }
+        }
+        for (EntryLogic logic : logics) {
+            logic.added();
+        }
+    }
+
     // documentation inherited from interface ActorAdvancer.Environment
     public TudeySceneModel getSceneModel ()
     {
@@ -1510,6 +1572,7 @@ public class TudeySceneManager extends SceneManager
         // cancel the ticker if enough time has elapsed with no occupants
         long now = RunAnywhere.currentTimeMillis();
         if (_plobj.occupants.size() == 0 && (now - _emptyTime) >= idleTickPeriod()) {
+            flushEntryUpdates();
             _ticker.remove(this);
             return;
         }
@@ -1592,6 +1655,9 @@ public class TudeySceneManager extends SceneManager
         }
         _ticking = false;
 
+        // broadcast the entry changes queued during the tick
+        flushEntryUpdates();
+
         // clear the lists
         _staticActorsAdded.clear();
         _staticActorsUpdated.clear();
@@ -1602,6 +1668,18 @@ public class TudeySceneManager extends SceneManager
         _tickDuration = (RunAnywhere.currentTimeMillis() - _lastTick);
     }
 
+    /**
+     * Records a scene update containing the entry changes queued since the last flush, if any.
+     */
+    protected void flushEntryUpdates ()
+    {
+        EntryDeltasUpdate update = _entryUpdates.flush(
+            (TudeySceneModel)_scene.getSceneModel(), _scene.getId(), _scene.getVersion());
+        if (update != null) {
+            recordUpdate(update);
+        }
+    }
+
     /**
      * Returns a reference to the configuration to use for the specified body's pawn or
      * <code>null</code> for none.
@@ -1825,6 +1903,9 @@ public class TudeySceneManager extends SceneManager
     /** The logic for static actors removed on the current tick. */
     protected Set<ActorLogic> _staticActorsRemoved = Sets.newHashSet();
 
+    /** The entry changes queued during the current tick. */
+    protected EntryUpdateQueue _entryUpdates = new EntryUpdateQueue();
+
     /** The logic for effects fired on the current tick. */
     protected ArrayList<EffectLogic> _effectsFired = Lists.newArrayList();
 
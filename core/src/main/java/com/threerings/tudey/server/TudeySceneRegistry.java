@@ -26,8 +26,13 @@
 package com.threerings.tudey.server;
 
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
 
 import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
 import com.samskivert.util.HashIntMap;
@@ -113,6 +118,25 @@ public class TudeySceneRegistry extends SceneRegistry
         return _defaultTicker;
     }
 
+    /**
+     * Returns the provider for the named logic class.  Resolving the class and looking up its
+     * binding cost much more than creating an instance, so the provider is cached the first time
+     * any scene manager asks for the class and shared by all of them thereafter.
+     */
+    public Provider<?> getLogicProvider (String cname)
+        throws ClassNotFoundException
+    {
+        Provider<?> provider = _logicProviders.get(cname);
+        if (provider == null) {
+            Provider<?> nprovider = _injector.getProvider(Class.forName(cname));
+            provider = _logicProviders.putIfAbsent(cname, nprovider);
+            if (provider == null) {
+                provider = nprovider;
+            }
+        }
+        return provider;
+    }
+
     @Override
     public void moveTo (
         ClientObject caller, int sceneId, int sceneVer, SceneService.SceneMoveListener listener)
@@ -133,8 +157,9 @@ public class TudeySceneRegistry extends SceneRegistry
     protected void processSuccessfulResolution (
         SceneModel model, UpdateList updates, Object extras)
     {
-        // initialize the scene model
-        ((TudeySceneModel)model).init(_cfgmgr);
+        // initialize the scene model, sharing its config manager with any other instances of
+        // the same scene (server-side models never modify their embedded configs)
+        ((TudeySceneModel)model).initShared(_cfgmgr);
 
         super.processSuccessfulResolution(model, updates, extras);
     }
@@ -238,6 +263,13 @@ public class TudeySceneRegistry extends SceneRegistry
     /** The config manager. */
     @Inject protected ConfigManager _cfgmgr;
 
+    /** The injector that we use to look up logic providers. */
+    @Inject protected Injector _injector;
+
+    /** The cached providers for logic classes, mapped by class name.  Scene managers may run on
+     * separate ticker threads, so the map is concurrent. */
+    protected ConcurrentMap<String, Provider<?>> _logicProviders = Maps.newConcurrentMap();
+
     /** Maps body oids to the keys of their destination portals. */
     protected HashIntMap<PortalMapping> _portals = IntMaps.newHashIntMap();
 
@@ -26,10 +26,12 @@
 package com.threerings.tudey.server;
 
 import com.google.inject.Inject;
+import com.google.inject.Injector;
 import com.threerings.config.ConfigManager;
 import com.threerings.media.image.ColorPository;
 import com.threerings.resource.ResourceManager;
 import com.threerings.util.MessageManager;
+import com.threerings.util.WarmupUtil;
 
 import com.threerings.presents.server.PresentsServer;
 import com.threerings.whirled.server.SceneRegistry;
@@ -76,6 +78,15 @@ public abstract class TudeyServer extends WhirledServer
         }
     }
 
+    @Override
+    public void init (Injector injector)
+        throws Exception
+    {
+        // warm the class metadata caches in the background while the services start up
+        WarmupUtil.start();
+        super.init(injector);
+    }
+
     /** The scene registry. */
     @Inject protected SceneRegistry _scenereg;
 }
@@ -569,7 +569,7 @@ public abstract class ConditionLogic extends Logic
         @Override
         public boolean isSatisfied (Logic activator)
         {
-            return ExpressionLogic.coerceToBoolean(_expression.evaluate(activator, null));
+            return _expression.evaluateBoolean(activator, null);
         }
 
         @Override
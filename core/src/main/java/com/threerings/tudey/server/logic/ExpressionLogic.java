@@ -54,10 +54,29 @@ public abstract class ExpressionLogic extends Logic
             return _expr.evaluate(activator, previous);
         }
 
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _expr.evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _expr.evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean isConstant ()
+        {
+            return _expr instanceof Constant;
+        }
+
         @Override
         protected void didInit ()
         {
-            _expr = createExpression(((ExpressionConfig.Parsed)_config).getExpression(), _source);
+            _expr = fold(createExpression(
+                ((ExpressionConfig.Parsed)_config).getExpression(), _source));
         }
 
         /** The parsed value. */
@@ -75,14 +94,59 @@ public abstract class ExpressionLogic extends Logic
             return _value;
         }
 
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _doubleValue;
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _booleanValue;
+        }
+
+        @Override
+        public boolean isConstant ()
+        {
+            return true;
+        }
+
+        /**
+         * Initializes this constant with the precomputed value of another expression.
+         */
+        protected void init (ExpressionLogic expr, Object value)
+        {
+            init(expr._scenemgr);
+            _config = expr._config;
+            _source = expr._source;
+            setValue(value);
+        }
+
         @Override
         protected void didInit ()
         {
-            _value = parseValue(((ExpressionConfig.Constant)_config).value);
+            setValue(parseValue(((ExpressionConfig.Constant)_config).value));
+        }
+
+        /**
+         * Sets the value, precomputing its coerced forms.
+         */
+        protected void setValue (Object value)
+        {
+            _value = value;
+            _doubleValue = coerceToDouble(value);
+            _booleanValue = coerceToBoolean(value);
         }
 
         /** The parsed value. */
         protected Object _value;
+
+        /** The value coerced to a double. */
+        protected double _doubleValue;
+
+        /** The value coerced to a boolean. */
+        protected boolean _booleanValue;
     }
 
     /**
@@ -93,10 +157,9 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            String name = ((ExpressionConfig.Reference)_config).name;
             _target.resolve(activator, _targets);
             for (int ii = 0, nn = _targets.size(); ii < nn; ii++) {
-                Object value = _targets.get(ii).getVariable(name);
+                Object value = _targets.get(ii).getVariable(_name);
                 if (value != null) {
                     _targets.clear();
                     return value;
@@ -109,9 +172,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         protected void didInit ()
         {
-            _target = createTarget(((ExpressionConfig.Reference)_config).target, _source);
+            ExpressionConfig.Reference config = (ExpressionConfig.Reference)_config;
+            _name = config.name;
+            _target = createTarget(config.target, _source);
         }
 
+        /** The name of the variable to look up. */
+        protected String _name;
+
         /** The target logic. */
         protected TargetLogic _target;
 
@@ -126,9 +194,23 @@ public abstract class ExpressionLogic extends Logic
     {
         @Override
         public Object evaluate (Logic activator, Object previous)
+        {
+            return new Integer(countTargets(activator));
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return countTargets(activator);
+        }
+
+        /**
+         * Resolves and counts the targets.
+         */
+        protected int countTargets (Logic activator)
         {
             _target.resolve(activator, _targets);
-            Integer numTargets = new Integer(_targets.size());
+            int numTargets = _targets.size();
             _targets.clear();
             return numTargets;
         }
@@ -175,11 +257,17 @@ public abstract class ExpressionLogic extends Logic
      */
     public static abstract class UnaryOperation extends ExpressionLogic
     {
+        @Override
+        public boolean isConstant ()
+        {
+            return _operand instanceof Constant;
+        }
+
         @Override
         protected void didInit ()
         {
-            _operand = createExpression(
-                ((ExpressionConfig.UnaryOperation)_config).operand, _source);
+            _operand = fold(createExpression(
+                ((ExpressionConfig.UnaryOperation)_config).operand, _source));
         }
 
         /** The operand logic. */
@@ -194,7 +282,13 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_operand.evaluate(activator, previous)) + 1.0;
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _operand.evaluateDouble(activator, previous) + 1.0;
         }
     }
 
@@ -206,7 +300,13 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_operand.evaluate(activator, previous)) - 1.0;
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _operand.evaluateDouble(activator, previous) - 1.0;
         }
     }
 
@@ -218,7 +318,13 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return -coerceToDouble(_operand.evaluate(activator, previous));
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return -_operand.evaluateDouble(activator, previous);
         }
     }
 
@@ -227,12 +333,18 @@ public abstract class ExpressionLogic extends Logic
      */
     public static abstract class BinaryOperation extends ExpressionLogic
     {
+        @Override
+        public boolean isConstant ()
+        {
+            return _firstOperand instanceof Constant && _secondOperand instanceof Constant;
+        }
+
         @Override
         protected void didInit ()
         {
             ExpressionConfig.BinaryOperation config = (ExpressionConfig.BinaryOperation)_config;
-            _firstOperand = createExpression(config.firstOperand, _source);
-            _secondOperand = createExpression(config.secondOperand, _source);
+            _firstOperand = fold(createExpression(config.firstOperand, _source));
+            _secondOperand = fold(createExpression(config.secondOperand, _source));
         }
 
         /** The operand logics. */
@@ -247,8 +359,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) +
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) +
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -260,8 +378,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) -
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) -
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -273,8 +397,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) *
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) *
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -286,8 +416,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) /
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) /
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -299,8 +435,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) %
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateDouble(activator, previous);
+        }
+
+        @Override
+        public double evaluateDouble (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) %
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -312,7 +454,13 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return !coerceToBoolean(_operand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return !_operand.evaluateBoolean(activator, previous);
         }
     }
 
@@ -324,8 +472,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToBoolean(_firstOperand.evaluate(activator, previous)) &&
-                coerceToBoolean(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateBoolean(activator, previous) &&
+                _secondOperand.evaluateBoolean(activator, previous);
         }
     }
 
@@ -337,8 +491,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToBoolean(_firstOperand.evaluate(activator, previous)) ||
-                coerceToBoolean(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateBoolean(activator, previous) ||
+                _secondOperand.evaluateBoolean(activator, previous);
         }
     }
 
@@ -350,8 +510,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToBoolean(_firstOperand.evaluate(activator, previous)) ^
-                coerceToBoolean(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateBoolean(activator, previous) ^
+                _secondOperand.evaluateBoolean(activator, previous);
         }
     }
 
@@ -363,8 +529,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) <
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) <
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -376,8 +548,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) >
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) >
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -402,8 +580,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) <=
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) <=
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -415,8 +599,14 @@ public abstract class ExpressionLogic extends Logic
         @Override
         public Object evaluate (Logic activator, Object previous)
         {
-            return coerceToDouble(_firstOperand.evaluate(activator, previous)) >=
-                coerceToDouble(_secondOperand.evaluate(activator, previous));
+            return evaluateBoolean(activator, previous);
+        }
+
+        @Override
+        public boolean evaluateBoolean (Logic activator, Object previous)
+        {
+            return _firstOperand.evaluateDouble(activator, previous) >=
+                _secondOperand.evaluateDouble(activator, previous);
         }
     }
 
@@ -438,6 +628,33 @@ public abstract class ExpressionLogic extends Logic
      */
     public abstract Object evaluate (Logic activator, Object previous);
 
+    /**
+     * Evaluates the expression as a double.  Numeric expressions override this to avoid boxing
+     * their intermediate results.
+     */
+    public double evaluateDouble (Logic activator, Object previous)
+    {
+        return coerceToDouble(evaluate(activator, previous));
+    }
+
+    /**
+     * Evaluates the expression as a boolean.  Logical expressions override this to avoid boxing
+     * their intermediate results.
+     */
+    public boolean evaluateBoolean (Logic activator, Object previous)
+    {
+        return coerceToBoolean(evaluate(activator, previous));
+    }
+
+    /**
+     * Determines whether this expression always evaluates to the same value (and thus may be
+     * folded into a constant).
+     */
+    public boolean isConstant ()
+    {
+        return false;
+    }
+
     @Override
     public boolean isActive ()
     {
@@ -470,6 +687,20 @@ public abstract class ExpressionLogic extends Logic
         // nothing by default
     }
 
+    /**
+     * Replaces the supplied expression with a constant containing its value if it is constant
+     * (but not already a simple constant).
+     */
+    protected static ExpressionLogic fold (ExpressionLogic expr)
+    {
+        if (expr == null || expr instanceof Constant || !expr.isConstant()) {
+            return expr;
+        }
+        Constant constant = new Constant();
+        constant.init(expr, expr.evaluate(null, null));
+        return constant;
+    }
+
     /**
      * Attempts to parse the supplied string into one of our known types.
      */
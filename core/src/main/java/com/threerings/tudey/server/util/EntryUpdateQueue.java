@@ -0,0 +1,177 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.server.util;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.threerings.delta.Delta;
+import com.threerings.delta.ReflectiveDelta;
+
+import com.threerings.tudey.data.EntryDeltasUpdate;
+import com.threerings.tudey.data.TudeySceneModel;
+import com.threerings.tudey.data.TudeySceneModel.Entry;
+
+import static com.threerings.tudey.Log.log;
+
+/**
+ * Collects the entry changes made during a tick so that they may be applied and broadcast as a
+ * single {@link EntryDeltasUpdate}.  Changes are folded per key in the order in which they were
+ * queued, so that each key appears at most once in the resulting update.
+ */
+public class EntryUpdateQueue
+{
+    /**
+     * Queues an entry to be added.
+     */
+    public void add (Entry entry)
+    {
+        Object key = entry.getKey();
+        Pending pending = _pending.get(key);
+        if (pending == null) {
+            _pending.put(key, new Pending(true, entry));
+        } else {
+            // re-adding an entry removed (or replaced) earlier in the tick replaces the original
+            pending.entry = entry;
+        }
+    }
+
+    /**
+     * Queues an update to an entry.
+     */
+    public void update (Entry entry)
+    {
+        Object key = entry.getKey();
+        Pending pending = _pending.get(key);
+        if (pending == null) {
+            _pending.put(key, new Pending(false, entry));
+        } else {
+            // updating an entry added earlier in the tick simply changes what we add
+            pending.entry = entry;
+        }
+    }
+
+    /**
+     * Queues the removal of an entry.
+     */
+    public void remove (Object key)
+    {
+        Pending pending = _pending.get(key);
+        if (pending == null) {
+            _pending.put(key, new Pending(false, null));
+        } else if (pending.added) {
+            // removing an entry added earlier in the tick cancels the addition
+            _pending.remove(key);
+        } else {
+            pending.entry = null;
+        }
+    }
+
+    /**
+     * Checks whether there are any changes queued.
+     */
+    public boolean isEmpty ()
+    {
+        return _pending.isEmpty();
+    }
+
+    /**
+     * Creates an update containing the queued changes relative to the current state of the
+     * supplied model and clears the queue.
+     *
+     * @return the update, or <code>null</code> if there were no changes.
+     */
+    public EntryDeltasUpdate flush (TudeySceneModel model, int sceneId, int version)
+    {
+        if (_pending.isEmpty()) {
+            return null;
+        }
+        List<Entry> added = Lists.newArrayList(), updated = Lists.newArrayList();
+        List<Object> deltaKeys = Lists.newArrayList(), removed = Lists.newArrayList();
+        List<Delta> deltas = Lists.newArrayList();
+        for (Map.Entry<Object, Pending> mapping : _pending.entrySet()) {
+            Object key = mapping.getKey();
+            Pending pending = mapping.getValue();
+            Entry oentry = model.getEntry(key), nentry = pending.entry;
+            if (pending.added) {
+                if (oentry == null) {
+                    added.add(nentry);
+                } else {
+                    log.warning("Entry to add already exists.", "key", key);
+                }
+            } else if (oentry == null) {
+                log.warning("Missing entry to modify.", "key", key);
+
+            } else if (nentry == null) {
+                removed.add(key);
+
+            } else if (oentry.getClass() != nentry.getClass()) {
+                updated.add(nentry);
+
+            } else {
+                ReflectiveDelta delta = new ReflectiveDelta(oentry, nentry);
+                if (!delta.isEmpty()) {
+                    deltaKeys.add(key);
+                    deltas.add(delta);
+                }
+            }
+        }
+        _pending.clear();
+        if (added.isEmpty() && updated.isEmpty() && deltaKeys.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        EntryDeltasUpdate update = new EntryDeltasUpdate();
+        update.init(sceneId, version,
+            added.toArray(new Entry[added.size()]),
+            updated.toArray(new Entry[updated.size()]),
+            deltaKeys.toArray(), deltas.toArray(new Delta[deltas.size()]), removed.toArray());
+        return update;
+    }
+
+    /**
+     * The folded change for a single key.
+     */
+    protected static class Pending
+    {
+        /** Whether the key was absent from the model when first queued. */
+        public final boolean added;
+
+        /** The entry to add or update, or <code>null</code> to remove. */
+        public Entry entry;
+
+        public Pending (boolean added, Entry entry)
+        {
+            this.added = added;
+            this.entry = entry;
+        }
+    }
+
+    /** The queued changes, mapped by key in the order first queued. */
+    protected Map<Object, Pending> _pending = Maps.newLinkedHashMap();
+}
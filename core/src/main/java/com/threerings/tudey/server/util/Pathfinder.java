@@ -31,8 +31,11 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 
+import com.samskivert.util.HashIntSet;
 import com.samskivert.util.IntMap;
 import com.samskivert.util.IntMaps;
+import com.samskivert.util.Interator;
+import com.samskivert.util.Tuple;
 
 import com.threerings.media.util.AStarPathUtil;
 import com.threerings.media.util.MathUtil;
@@ -67,7 +70,7 @@ import com.threerings.tudey.util.CoordIntMap;
  * expensive than maintaining the collision map for all actors, but it's not entirely clear).
  */
 public class Pathfinder
-    implements TudeySceneModel.Observer, TudeySceneManager.ActorObserver,
+    implements TudeySceneModel.BatchObserver, TudeySceneManager.ActorObserver,
         Logic.ShapeObserver, ActorLogic.CollisionFlagObserver
 {
     /**
@@ -179,6 +182,29 @@ public class Pathfinder
         removeFlags(oentry);
     }
 
+    // documentation inherited from interface TudeySceneModel.BatchObserver
+    public void entriesChanged (TudeySceneModel.EntryBatch batch)
+    {
+        // find all the cells covered by the old and new entries, then recompute each one once
+        HashIntSet cells = new HashIntSet();
+        for (Entry entry : batch.getAdded()) {
+            addCells(entry, cells);
+        }
+        for (Tuple<Entry, Entry> update : batch.getUpdated()) {
+            addCells(update.left, cells);
+            addCells(update.right, cells);
+        }
+        for (Entry entry : batch.getRemoved()) {
+            addCells(entry, cells);
+        }
+        for (Interator it = cells.interator(); it.hasNext(); ) {
+            int coord = it.nextInt();
+            int x = Coord.decodeX(coord), y = Coord.decodeY(coord);
+            updateQuad(x, y);
+            updateEntryFlags(x, y, null);
+        }
+    }
+
     // documentation inherited from interface TudeySceneManager.ActorObserver
     public void actorAdded (ActorLogic logic)
     {
@@ -476,6 +502,46 @@ public class Pathfinder
         }
     }
 
+    /**
+     * Adds the encoded coordinates of the cells whose flags are affected by the specified entry
+     * to the given set.
+     */
+    protected void addCells (Entry entry, HashIntSet cells)
+    {
+        ConfigManager cfgmgr = _scenemgr.getConfigManager();
+        if (entry instanceof TileEntry) {
+            TileEntry tentry = (TileEntry)entry;
+            TileConfig.Original config = tentry.getConfig(cfgmgr);
+            tentry.getRegion(config, _region);
+            for (int yy = _region.y, yymax = yy + _region.height; yy < yymax; yy++) {
+                for (int xx = _region.x, xxmax = xx + _region.width; xx < xxmax; xx++) {
+                    if (tentry.getCollisionFlags(config, xx, yy) != 0) {
+                        cells.add(Coord.encode(xx, yy));
+                    }
+                }
+            }
+            return;
+        }
+        Shape shape = entry.createShape(cfgmgr);
+        if (shape == null || entry.getCollisionFlags(cfgmgr) == 0) {
+            return;
+        }
+        Rect bounds = shape.getBounds();
+        Vector2f min = bounds.getMinimumExtent(), max = bounds.getMaximumExtent();
+        int minx = FloatMath.ifloor(min.x);
+        int maxx = FloatMath.ifloor(max.x);
+        int miny = FloatMath.ifloor(min.y);
+        int maxy = FloatMath.ifloor(max.y);
+        for (int yy = miny; yy <= maxy; yy++) {
+            for (int xx = minx; xx <= maxx; xx++) {
+                updateQuad(xx, yy);
+                if (shape.intersects(_quad)) {
+                    cells.add(Coord.encode(xx, yy));
+                }
+            }
+        }
+    }
+
     /**
      * Adds the flags for the specified actor.
      */
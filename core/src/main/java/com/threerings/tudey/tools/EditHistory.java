@@ -0,0 +1,276 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+
+import static com.threerings.tudey.Log.log;
+
+/**
+ * An undo manager that keeps the memory used by its {@link EntryEdit}s within a budget.  Edits
+ * that can no longer be merged are compacted, and once the edits exceed the budget, the entries
+ * held by the oldest are spilled to a temporary file.
+ */
+public class EditHistory extends UndoManager
+{
+    /**
+     * Creates a new history with the default memory budget.
+     */
+    public EditHistory ()
+    {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * Creates a new history.
+     *
+     * @param budget the (estimated) number of bytes of edits to keep in memory.
+     */
+    public EditHistory (long budget)
+    {
+        _budget = budget;
+    }
+
+    @Override
+    public synchronized boolean addEdit (UndoableEdit edit)
+    {
+        boolean added = super.addEdit(edit);
+        compact();
+        return added;
+    }
+
+    @Override
+    public synchronized void discardAllEdits ()
+    {
+        super.discardAllEdits();
+        if (_spill != null) {
+            _spill.close();
+            _spill = null;
+        }
+    }
+
+    /**
+     * Compacts all but the most recent edit (which may still absorb subsequent edits) and
+     * spills the oldest compacted edits to disk once the edits exceed the budget.
+     */
+    protected void compact ()
+    {
+        long total = 0L;
+        for (int ii = edits.size() - 2; ii >= 0; ii--) {
+            Object edit = edits.get(ii);
+            if (!(edit instanceof EntryEdit)) {
+                continue;
+            }
+            EntryEdit eedit = (EntryEdit)edit;
+            eedit.compact();
+            int size = eedit.getMemorySize();
+            if (total + size <= _budget || eedit.getCompactSize() == 0) {
+                total += size;
+                continue;
+            }
+            SpillFile spill = getSpillFile();
+            if (spill == null) {
+                return;
+            }
+            try {
+                eedit.spill(spill);
+            } catch (IOException e) {
+                log.warning("Failed to spill edit.", e);
+                return;
+            }
+            total += eedit.getMemorySize();
+        }
+    }
+
+    /**
+     * Returns the file to which we spill edits, creating it if necessary.
+     *
+     * @return the file, or <code>null</code> if it could not be created.
+     */
+    protected SpillFile getSpillFile ()
+    {
+        if (_spill == null) {
+            try {
+                _spill = new SpillFile();
+            } catch (IOException e) {
+                log.warning("Failed to create undo spill file.", e);
+            }
+        }
+        return _spill;
+    }
+
+    /**
+     * A temporary file holding spilled edits.  Space freed when edits are restored or discarded
+     * is reused for subsequent spills.
+     */
+    public static class SpillFile
+    {
+        /**
+         * Creates a new spill file.
+         */
+        public SpillFile ()
+            throws IOException
+        {
+            _file = File.createTempFile("undo", ".dat");
+            _file.deleteOnExit();
+            _raf = new RandomAccessFile(_file, "rw");
+        }
+
+        /**
+         * Writes the supplied data to a free region of the file.
+         *
+         * @return the offset at which the data was written.
+         */
+        public synchronized long write (byte[] data)
+            throws IOException
+        {
+            long offset = allocate(data.length);
+            _raf.seek(offset);
+            _raf.write(data);
+            return offset;
+        }
+
+        /**
+         * Reads data previously written at the specified offset.
+         */
+        public synchronized void read (long offset, byte[] data)
+            throws IOException
+        {
+            _raf.seek(offset);
+            _raf.readFully(data);
+        }
+
+        /**
+         * Releases a region previously returned by {@link #write} for reuse.
+         */
+        public synchronized void free (long offset, int length)
+        {
+            if (_raf == null) {
+                return;
+            }
+            // merge with the adjacent free regions, if any
+            long end = offset + length;
+            Map.Entry<Long, Long> prev = _free.floorEntry(offset);
+            if (prev != null && prev.getValue() == offset) {
+                _free.remove(prev.getKey());
+                offset = prev.getKey();
+            }
+            Long next = _free.get(end);
+            if (next != null) {
+                _free.remove(end);
+                end = next;
+            }
+
+            // if the region is at the end of the file, truncate instead
+            if (end == _length) {
+                _length = offset;
+                try {
+                    _raf.setLength(_length);
+                } catch (IOException e) {
+                    log.warning("Failed to truncate undo spill file.", e);
+                }
+            } else {
+                _free.put(offset, end);
+            }
+        }
+
+        /**
+         * Returns the length of the file, including free regions.
+         */
+        public synchronized long getLength ()
+        {
+            return _length;
+        }
+
+        /**
+         * Closes and deletes the file.
+         */
+        public synchronized void close ()
+        {
+            if (_raf == null) {
+                return;
+            }
+            try {
+                _raf.close();
+            } catch (IOException e) {
+                log.warning("Failed to close undo spill file.", e);
+            }
+            _raf = null;
+            if (!_file.delete()) {
+                log.warning("Failed to delete undo spill file.", "file", _file);
+            }
+        }
+
+        /**
+         * Finds (first fit) or appends a region of the requested length.
+         */
+        protected long allocate (int length)
+        {
+            for (Map.Entry<Long, Long> entry : _free.entrySet()) {
+                long offset = entry.getKey(), end = entry.getValue();
+                if (end - offset >= length) {
+                    _free.remove(offset);
+                    if (end - offset > length) {
+                        _free.put(offset + length, end);
+                    }
+                    return offset;
+                }
+            }
+            long offset = _length;
+            _length += length;
+            return offset;
+        }
+
+        /** The temporary file. */
+        protected File _file;
+
+        /** The open file, or <code>null</code> once closed. */
+        protected RandomAccessFile _raf;
+
+        /** The length of the used portion of the file. */
+        protected long _length;
+
+        /** Maps the start offsets of free regions to their end offsets. */
+        protected TreeMap<Long, Long> _free = new TreeMap<Long, Long>();
+    }
+
+    /** The number of bytes of edits to keep in memory. */
+    protected long _budget;
+
+    /** The file to which we spill edits, if created. */
+    protected SpillFile _spill;
+
+    /** The default memory budget. */
+    protected static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+}
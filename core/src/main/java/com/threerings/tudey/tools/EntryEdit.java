@@ -25,6 +25,11 @@
 
 package com.threerings.tudey.tools;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.List;
 import java.util.Map;
 
 import javax.swing.undo.AbstractUndoableEdit;
@@ -33,17 +38,29 @@ import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.UndoableEdit;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+import com.threerings.delta.Delta;
+import com.threerings.delta.ReflectiveDelta;
+import com.threerings.export.BinaryExporter;
+import com.threerings.export.BinaryImporter;
 import com.threerings.opengl.gui.util.Rectangle;
 
 import com.threerings.tudey.data.TudeySceneModel;
 import com.threerings.tudey.data.TudeySceneModel.Entry;
 import com.threerings.tudey.data.TudeySceneModel.Paint;
 import com.threerings.tudey.util.Coord;
+import com.threerings.tudey.util.CoordIntMap;
+import com.threerings.tudey.util.CoordIntMap.CoordIntEntry;
+
+import static com.threerings.tudey.Log.log;
 
 /**
- * Represents an edit to the scene's entries (and paint).
+ * Represents an edit to the scene's entries (and paint).  To keep long histories small, updated
+ * entries are stored as deltas against the entries in the scene and paint as indices into a
+ * small palette; once the edit can no longer be merged, {@link EditHistory} may also
+ * {@link #compact} the entries it holds into an exported blob and {@link #spill} that to disk.
  */
 public class EntryEdit extends AbstractUndoableEdit
 {
@@ -57,29 +74,35 @@ public class EntryEdit extends AbstractUndoableEdit
         _id = id;
         _layer = layer;
 
-        // add the new entries and put them in the map
-        for (Entry entry : add) {
-            if (_scene.addEntry(entry)) {
-                _scene.setLayer(entry.getKey(), layer);
-                _added.put(entry.getKey(), null);
+        _scene.startBatch();
+        try {
+            // add the new entries and put them in the map
+            for (Entry entry : add) {
+                if (_scene.addEntry(entry)) {
+                    _scene.setLayer(entry.getKey(), layer);
+                    _added.put(entry.getKey(), null);
+                }
             }
-        }
 
-        // update the modified entries and store old state
-        for (Entry entry : update) {
-            Entry oentry = _scene.updateEntry(entry);
-            _scene.setLayer(entry.getKey(), layer);
-            if (oentry != null) {
-                _updated.put(entry.getKey(), oentry);
+            // update the modified entries and store the changes needed to revert them
+            for (Entry entry : update) {
+                Object key = entry.getKey();
+                Entry oentry = _scene.updateEntry(entry);
+                _scene.setLayer(key, layer);
+                if (oentry != null) {
+                    _updated.put(key, createUpdate(_scene.getEntry(key), oentry));
+                }
             }
-        }
 
-        // remove the requested entries and store old state
-        for (Object key : remove) {
-            Entry oentry = _scene.removeEntry(key);
-            if (oentry != null) {
-                _removed.put(key, oentry);
+            // remove the requested entries and store old state
+            for (Object key : remove) {
+                Entry oentry = _scene.removeEntry(key);
+                if (oentry != null) {
+                    _removed.put(key, oentry);
+                }
             }
+        } finally {
+            _scene.endBatch();
         }
     }
 
@@ -97,12 +120,84 @@ public class EntryEdit extends AbstractUndoableEdit
             for (int xx = region.x, xxmax = xx + region.width; xx < xxmax; xx++) {
                 Paint opaint = _scene.setPaint(xx, yy, paint);
                 if (!Objects.equal(opaint, paint)) {
-                    _paint.put(new Coord(xx, yy), opaint);
+                    _paint.put(xx, yy, getPaintIndex(opaint));
                 }
             }
         }
     }
 
+    /**
+     * Encodes the entries held by this edit into a compact blob, releasing the entries
+     * themselves.  They will be decoded again when the edit is undone or redone.
+     */
+    public void compact ()
+    {
+        if (_compact) {
+            return;
+        }
+        List<Entry> entries = Lists.newArrayList();
+        collectEntries(_added, entries);
+        collectEntries(_removed, entries);
+        if (!entries.isEmpty()) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            try {
+                BinaryExporter out = new BinaryExporter(bout);
+                out.writeObject(entries.toArray(new Entry[entries.size()]));
+                out.close();
+            } catch (IOException e) {
+                log.warning("Failed to compact edit.", e);
+                return;
+            }
+            _data = bout.toByteArray();
+        }
+        clearEntries(_added);
+        clearEntries(_removed);
+        _compact = true;
+    }
+
+    /**
+     * Returns the number of bytes of compacted data held in memory by this edit.
+     */
+    public int getCompactSize ()
+    {
+        return (_data == null) ? 0 : _data.length;
+    }
+
+    /**
+     * Returns a rough estimate of the number of bytes held in memory by this edit: the compacted
+     * data (if not spilled) plus the keys, update deltas, paint, and palette.
+     */
+    public int getMemorySize ()
+    {
+        return getCompactSize() +
+            (_added.size() + _removed.size()) * KEY_SIZE +
+            _updated.size() * UPDATE_SIZE +
+            _paint.size() * PAINT_SIZE +
+            _paints.size() * PALETTE_SIZE;
+    }
+
+    /**
+     * Writes the compacted data to a free region of the supplied file and releases it.
+     */
+    public void spill (EditHistory.SpillFile file)
+        throws IOException
+    {
+        if (_data == null) {
+            return;
+        }
+        _offset = file.write(_data);
+        _length = _data.length;
+        _spill = file;
+        _data = null;
+    }
+
+    @Override
+    public void die ()
+    {
+        super.die();
+        releaseSpill();
+    }
+
     @Override
     public boolean addEdit (UndoableEdit edit)
     {
@@ -114,6 +209,12 @@ public class EntryEdit extends AbstractUndoableEdit
         if ((oedit._id != _id) || (oedit._layer != _layer)) {
             return false;
         }
+        try {
+            restore();
+        } catch (IOException e) {
+            log.warning("Failed to restore edit for merging.", e);
+            return false;
+        }
 
         // merge the added entries
         for (Object key : oedit._added.keySet()) {
@@ -121,15 +222,23 @@ public class EntryEdit extends AbstractUndoableEdit
             if (oentry == null) {
                 _added.put(key, null);
             } else {
-                _updated.put(key, oentry);
+                _updated.put(key, createUpdate(_scene.getEntry(key), oentry));
             }
         }
 
-        // merge the updated entries
-        for (Entry entry : oedit._updated.values()) {
+        // merge the updated entries, composing the changes where we updated them as well
+        for (Map.Entry<Object, Object> entry : oedit._updated.entrySet()) {
             Object key = entry.getKey();
-            if (!(_added.containsKey(key) || _updated.containsKey(key))) {
-                _updated.put(key, entry);
+            if (_added.containsKey(key)) {
+                continue;
+            }
+            Object update = _updated.get(key);
+            if (update == null) {
+                _updated.put(key, entry.getValue());
+            } else {
+                Entry current = _scene.getEntry(key);
+                _updated.put(key, createUpdate(
+                    current, applyUpdate(update, applyUpdate(entry.getValue(), current))));
             }
         }
 
@@ -139,16 +248,17 @@ public class EntryEdit extends AbstractUndoableEdit
             if (_added.containsKey(key)) {
                 _added.remove(key);
             } else {
-                Entry oentry = _updated.remove(key);
-                _removed.put(key, oentry == null ? entry : oentry);
+                Object update = _updated.remove(key);
+                _removed.put(key, update == null ? entry : applyUpdate(update, entry));
             }
         }
 
         // merge the paint
-        for (Map.Entry<Coord, Paint> entry : oedit._paint.entrySet()) {
+        for (CoordIntEntry entry : oedit._paint.coordIntEntrySet()) {
             Coord coord = entry.getKey();
-            if (!_paint.containsKey(coord)) {
-                _paint.put(coord, entry.getValue());
+            if (!_paint.containsKey(coord.x, coord.y)) {
+                _paint.put(coord.x, coord.y,
+                    getPaintIndex(oedit._paints.get(entry.getIntValue())));
             }
         }
 
@@ -160,6 +270,12 @@ public class EntryEdit extends AbstractUndoableEdit
         throws CannotUndoException
     {
         super.undo();
+        try {
+            restore();
+        } catch (IOException e) {
+            log.warning("Failed to restore edit for undo.", e);
+            throw new CannotUndoException();
+        }
         swap(_removed, _added);
     }
 
@@ -168,6 +284,12 @@ public class EntryEdit extends AbstractUndoableEdit
         throws CannotRedoException
     {
         super.redo();
+        try {
+            restore();
+        } catch (IOException e) {
+            log.warning("Failed to restore edit for redo.", e);
+            throw new CannotRedoException();
+        }
         swap(_added, _removed);
     }
 
@@ -179,27 +301,131 @@ public class EntryEdit extends AbstractUndoableEdit
      */
     protected void swap (Map<Object, Entry> removed, Map<Object, Entry> added)
     {
-        // add back the entries we removed (retaining their ids)
-        for (Map.Entry<Object, Entry> entry : removed.entrySet()) {
-            _scene.addEntry(entry.getValue(), false);
-            _scene.setLayer(entry.getValue().getKey(), _layer);
-            entry.setValue(null);
+        _scene.startBatch();
+        try {
+            // add back the entries we removed (retaining their ids)
+            for (Map.Entry<Object, Entry> entry : removed.entrySet()) {
+                _scene.addEntry(entry.getValue(), false);
+                _scene.setLayer(entry.getValue().getKey(), _layer);
+                entry.setValue(null);
+            }
+
+            // swap out the entries we updated, storing the changes needed to swap them back
+            for (Map.Entry<Object, Object> entry : _updated.entrySet()) {
+                Object key = entry.getKey();
+                Entry oentry = _scene.updateEntry(
+                    applyUpdate(entry.getValue(), _scene.getEntry(key)));
+                entry.setValue(createUpdate(_scene.getEntry(key), oentry));
+            }
+
+            // remove the entries we added
+            for (Map.Entry<Object, Entry> entry : added.entrySet()) {
+                entry.setValue(_scene.removeEntry(entry.getKey()));
+            }
+
+            // swap the paint
+            for (CoordIntEntry entry : _paint.coordIntEntrySet()) {
+                Coord coord = entry.getKey();
+                Paint opaint = _scene.setPaint(
+                    coord.x, coord.y, _paints.get(entry.getIntValue()));
+                entry.setIntValue(getPaintIndex(opaint));
+            }
+        } finally {
+            _scene.endBatch();
         }
+    }
 
-        // swap out the entries we updated
-        for (Map.Entry<Object, Entry> entry : _updated.entrySet()) {
-            entry.setValue(_scene.updateEntry(entry.getValue()));
+    /**
+     * Decodes the entries compacted by {@link #compact}, if necessary.
+     */
+    protected void restore ()
+        throws IOException
+    {
+        if (!_compact) {
+            return;
+        }
+        byte[] data = _data;
+        if (data == null && _spill != null) {
+            _spill.read(_offset, data = new byte[_length]);
+            releaseSpill();
+        }
+        if (data != null) {
+            BinaryImporter in = new BinaryImporter(new ByteArrayInputStream(data));
+            try {
+                for (Entry entry : (Entry[])in.readObject()) {
+                    Object key = entry.getKey();
+                    (_removed.containsKey(key) ? _removed : _added).put(key, entry);
+                }
+            } finally {
+                in.close();
+            }
         }
+        _data = null;
+        _compact = false;
+    }
 
-        // remove the entries we added
-        for (Map.Entry<Object, Entry> entry : added.entrySet()) {
-            entry.setValue(_scene.removeEntry(entry.getKey()));
+    /**
+     * Frees the region of the spill file holding our data, if any.
+     */
+    protected void releaseSpill ()
+    {
+        if (_spill != null) {
+            _spill.free(_offset, _length);
+            _spill = null;
         }
+    }
 
-        // swap the paint
-        for (Map.Entry<Coord, Paint> entry : _paint.entrySet()) {
-            Coord coord = entry.getKey();
-            entry.setValue(_scene.setPaint(coord.x, coord.y, entry.getValue()));
+    /**
+     * Returns the index of the specified paint (which may be <code>null</code>) in the palette,
+     * adding it if necessary.
+     */
+    protected int getPaintIndex (Paint paint)
+    {
+        int idx = _paints.indexOf(paint);
+        if (idx == -1) {
+            idx = _paints.size();
+            _paints.add(paint);
+        }
+        return idx;
+    }
+
+    /**
+     * Creates the object that will turn the current entry into the target: a delta if the
+     * entries are of the same class, otherwise the target itself.
+     */
+    protected static Object createUpdate (Entry current, Entry target)
+    {
+        return (current != null && current.getClass() == target.getClass()) ?
+            new ReflectiveDelta(current, target) : target;
+    }
+
+    /**
+     * Applies an update created by {@link #createUpdate} to the current entry.
+     */
+    protected static Entry applyUpdate (Object update, Entry current)
+    {
+        return (update instanceof Delta) ? (Entry)((Delta)update).apply(current) : (Entry)update;
+    }
+
+    /**
+     * Adds the non-null entries in the supplied map to the list.
+     */
+    protected static void collectEntries (Map<Object, Entry> map, List<Entry> entries)
+    {
+        for (Entry entry : map.values()) {
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Clears out the entries in the supplied map, leaving the keys.
+     */
+    protected static void clearEntries (Map<Object, Entry> map)
+    {
+        for (Map.Entry<Object, Entry> entry : map.entrySet()) {
+            entry.setValue(null);
         }
     }
 
@@ -215,12 +441,42 @@ public class EntryEdit extends AbstractUndoableEdit
     /** The entries added in this edit. */
     protected Map<Object, Entry> _added = Maps.newHashMap();
 
-    /** The entries updated in this edit. */
-    protected Map<Object, Entry> _updated = Maps.newHashMap();
+    /** The deltas (or, where the class changed, entries) to swap the updated entries. */
+    protected Map<Object, Object> _updated = Maps.newHashMap();
 
     /** The entries removed in this edit. */
     protected Map<Object, Entry> _removed = Maps.newHashMap();
 
-    /** The paint set or cleared in this edit. */
-    protected Map<Coord, Paint> _paint = Maps.newHashMap();
+    /** The paint set or cleared in this edit, as indices into the palette. */
+    protected CoordIntMap _paint = new CoordIntMap();
+
+    /** The palette of paints referenced by the paint map. */
+    protected List<Paint> _paints = Lists.newArrayList();
+
+    /** Set when the entries have been compacted. */
+    protected boolean _compact;
+
+    /** The compacted entries, if held in memory. */
+    protected byte[] _data;
+
+    /** The file to which the compacted entries were spilled, if any. */
+    protected EditHistory.SpillFile _spill;
+
+    /** The location of the spilled entries in the file. */
+    protected long _offset;
+
+    /** The length of the spilled entries. */
+    protected int _length;
+
+    /** The estimated size of an entry key. */
+    protected static final int KEY_SIZE = 48;
+
+    /** The estimated size of an update delta (or replacement entry) and its key. */
+    protected static final int UPDATE_SIZE = 256;
+
+    /** The estimated size of a paint map entry. */
+    protected static final int PAINT_SIZE = 32;
+
+    /** The estimated size of a palette entry. */
+    protected static final int PALETTE_SIZE = 64;
 }
@@ -27,6 +27,7 @@ package com.threerings.tudey.tools;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.PrintStream;
 
 import java.util.List;
 
@@ -41,6 +42,7 @@ import com.threerings.resource.ResourceManager;
 import com.threerings.util.MessageManager;
 
 import com.threerings.config.ConfigManager;
+import com.threerings.editor.util.ReferenceIndex;
 import com.threerings.export.BinaryImporter;
 
 import com.threerings.tudey.data.TudeySceneModel;
@@ -60,6 +62,15 @@ public class SceneValidatorTask extends Task
         _filesets.add(set);
     }
 
+    /**
+     * Sets the file in which to store the reference index, so that unchanged scenes need not be
+     * loaded and crawled on subsequent runs.
+     */
+    public void setIndex (File index)
+    {
+        _index = index;
+    }
+
     @Override
     public void execute ()
         throws BuildException
@@ -67,29 +78,53 @@ public class SceneValidatorTask extends Task
         ResourceManager rsrcmgr = new ResourceManager("rsrc/");
         MessageManager msgmgr = new MessageManager("rsrc.i18n");
         rsrcmgr.initResourceDir("rsrc/");
-        ConfigManager cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
+        final ConfigManager cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
         cfgmgr.init();
 
+        ReferenceIndex index = new ReferenceIndex();
+        if (_index != null) {
+            index.load(_index);
+        }
+
         boolean valid = true;
 
         for (FileSet fs : _filesets) {
             DirectoryScanner ds = fs.getDirectoryScanner(getProject());
             File fromDir = fs.getDir(getProject());
-            for (String file : ds.getIncludedFiles()) {
-                File source = new File(fromDir, file);
+            for (final String file : ds.getIncludedFiles()) {
+                final File source = new File(fromDir, file);
                 try {
-                    TudeySceneModel model = (TudeySceneModel)new BinaryImporter(
-                        new FileInputStream(source)).readObject();
-                    model.getConfigManager().init("scene", cfgmgr);
-                    valid = model.validateReferences(file, System.err) && valid;
+                    valid = index.validateReferences(source.getPath(), source.lastModified(),
+                        cfgmgr, System.err, new ReferenceIndex.Validator() {
+                        public boolean validateReferences (PrintStream out) throws Exception {
+                            TudeySceneModel model;
+                            FileInputStream in = new FileInputStream(source);
+                            try {
+                                model = (TudeySceneModel)new BinaryImporter(in).readObject();
+                            } finally {
+                                in.close();
+                            }
+                            model.getConfigManager().init("scene", cfgmgr);
+                            return model.validateReferences(file, out);
+                        }
+                    }) && valid;
 
                 } catch (Exception e) { // IOException, ClassCastException
                     log.warning("Failed to read scene.", "file", source, e);
+                    index.remove(source.getPath());
                 }
             }
         }
+
+        if (_index != null) {
+            index.pruneUnvalidated();
+            index.save(_index);
+        }
     }
 
     /** A list of filesets that contain resource configs. */
     protected List<FileSet> _filesets = Lists.newArrayList();
+
+    /** The file in which to store the reference index, if any. */
+    protected File _index;
 }
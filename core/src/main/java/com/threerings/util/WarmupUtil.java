@@ -0,0 +1,170 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.collect.Lists;
+
+import com.samskivert.util.StringUtil;
+
+import com.threerings.editor.Introspector;
+import com.threerings.export.ObjectMarshaller;
+import com.threerings.expr.util.ScopeUtil;
+
+import static com.threerings.ClydeLog.log;
+
+/**
+ * Precomputes the reflective metadata for the classes listed in a warm-up manifest (as written
+ * by {@link com.threerings.export.tools.ClassListBuilder}), so that we don't pay for it lazily
+ * while loading configs and scenes.
+ */
+public class WarmupUtil
+{
+    /** The system property naming the warm-up manifest, if any. */
+    public static final String MANIFEST_PROPERTY = "warmup_manifest";
+
+    /** The system property that, when true, adds editor metadata to the warm-up. */
+    public static final String EDITOR_PROPERTY = "warmup_editor";
+
+    /**
+     * Starts warming the caches in the background using the manifest named by the
+     * {@link #MANIFEST_PROPERTY} system property.  Does nothing if the property is not set.
+     */
+    public static void start ()
+    {
+        String manifest = System.getProperty(MANIFEST_PROPERTY);
+        if (!StringUtil.isBlank(manifest)) {
+            start(new File(manifest), Boolean.getBoolean(EDITOR_PROPERTY));
+        }
+    }
+
+    /**
+     * Starts warming the caches in the background using the specified manifest.
+     *
+     * @param editor if true, precompute the editor property metadata as well.
+     */
+    public static void start (File manifest, boolean editor)
+    {
+        List<String> names;
+        try {
+            names = readManifest(manifest);
+        } catch (IOException e) {
+            log.warning("Failed to read warm-up manifest.", "manifest", manifest, e);
+            return;
+        }
+        start(names, editor);
+    }
+
+    /**
+     * Starts warming the caches for the named classes in the background.  The work is split
+     * evenly between a set of low-priority daemon threads, so this method returns immediately;
+     * anything not yet warmed by the time it's needed will simply be computed on demand.
+     */
+    public static void start (List<String> names, final boolean editor)
+    {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread (Runnable runnable) {
+                Thread thread = new Thread(runnable, "Warm-up worker");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        int size = (names.size() + threads - 1) / threads;
+        for (final List<String> partition : Lists.partition(names, Math.max(size, 1))) {
+            executor.execute(new Runnable() {
+                public void run () {
+                    warm(partition, editor);
+                }
+            });
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Warms the caches for the named classes on the calling thread.
+     */
+    public static void warm (Collection<String> names, boolean editor)
+    {
+        ClassLoader loader = WarmupUtil.class.getClassLoader();
+        for (String name : names) {
+            try {
+                warm(Class.forName(name, true, loader), editor);
+            } catch (Throwable t) {
+                // the manifest may be stale; the class will be handled on demand if it's needed
+                log.debug("Failed to warm class.", "class", name, "error", t);
+            }
+        }
+    }
+
+    /**
+     * Reads the class names from the specified manifest.  Blank lines and lines starting with
+     * '#' are ignored.
+     */
+    public static List<String> readManifest (File manifest)
+        throws IOException
+    {
+        List<String> names = Lists.newArrayList();
+        BufferedReader reader = new BufferedReader(new FileReader(manifest));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && line.charAt(0) != '#') {
+                    names.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return names;
+    }
+
+    /**
+     * Warms the caches for a single class.
+     */
+    protected static void warm (Class<?> clazz, boolean editor)
+    {
+        ObjectMarshaller.getObjectMarshaller(clazz);
+        ScopeUtil.precompute(clazz);
+        if (editor) {
+            Introspector.getProperties(clazz);
+            Introspector.getCategories(clazz);
+            Introspector.getMessageBundle(clazz);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests the {@link XMLExporter} and {@link XMLImporter}.
+ */
+public class XMLExporterTest extends TestCase
+{
+    /** A simple enum for testing enum sets. */
+    public enum Flag { RED, GREEN, BLUE };
+
+    /**
+     * An object with a variety of exportable fields.
+     */
+    public static class Sample
+        implements Exportable
+    {
+        public int count = 1;
+        public double ratio = 0.5;
+        public String name = "default";
+        public String text;
+        public int[] ints;
+        public String[] strings;
+        public List<Object> list;
+        public Map<String, Object> map;
+        public EnumSet<Flag> flags;
+        public Object shared;
+        public Sample child;
+        public Sample parent;
+        public Object[] objects;
+    }
+
+    /**
+     * An object whose custom writer writes a temporary object more than once and replaces a
+     * field, and whose custom reader reads its fields in a different order and more than once.
+     */
+    public static class Custom
+        implements Exportable
+    {
+        public String comment = "";
+        public int value;
+        public List<Object> first, second;
+        public transient int rereadValue;
+
+        public void writeFields (Exporter out)
+            throws IOException
+        {
+            out.write("comment", comment, "");
+            out.write("value", -1);
+            out.defaultWriteFields();
+            List<Object> temp = new ArrayList<Object>();
+            temp.add("temporary");
+            out.write("temp1", temp, null, Object.class);
+            out.write("temp2", temp, null, Object.class);
+            out.write("value", value);
+        }
+
+        public void readFields (Importer in)
+            throws IOException
+        {
+            in.defaultReadFields();
+            comment = in.read("comment", "");
+            rereadValue = in.read("value", 0);
+            @SuppressWarnings("unchecked") List<Object> temp1 =
+                (List<Object>)in.read("temp1", null, Object.class);
+            @SuppressWarnings("unchecked") List<Object> temp2 =
+                (List<Object>)in.read("temp2", null, Object.class);
+            first = temp1;
+            second = temp2;
+        }
+    }
+
+    public XMLExporterTest (String name)
+    {
+        super(name);
+    }
+
+    public void testOutput ()
+        throws IOException
+    {
+        // the expected output was generated by the DOM-based exporter (serializing with the
+        // JDK's LSSerializer), which we must match byte for byte
+        InputStream in = getClass().getResourceAsStream("sample.xml");
+        byte[] expected;
+        try {
+            expected = ByteStreams.toByteArray(in);
+        } finally {
+            in.close();
+        }
+        assertEquals(new String(expected, "UTF-8"), new String(export(createSample()), "UTF-8"));
+        assertTrue(java.util.Arrays.equals(expected, export(createSample())));
+    }
+
+    public void testSharedTemporaries ()
+        throws IOException
+    {
+        Custom custom = new Custom();
+        custom.comment = "comment";
+        custom.value = 5;
+        Custom result = (Custom)importObject(export(custom));
+        assertEquals("comment", result.comment);
+        assertEquals(5, result.value);
+        assertEquals(5, result.rereadValue);
+        assertNotNull(result.first);
+        assertSame(result.first, result.second);
+        assertEquals("temporary", result.first.get(0));
+    }
+
+    public void testRoundTrip ()
+        throws IOException
+    {
+        Sample sample = createSample();
+        Sample result = (Sample)importObject(export(sample));
+        assertEquals(sample.count, result.count);
+        assertEquals(sample.ratio, result.ratio);
+        assertEquals(sample.name, result.name);
+        assertEquals(sample.text, result.text);
+        assertTrue(java.util.Arrays.equals(sample.ints, result.ints));
+        assertTrue(java.util.Arrays.equals(sample.strings, result.strings));
+        assertEquals(sample.list, result.list);
+        assertEquals(sample.map.keySet(), result.map.keySet());
+        assertEquals(sample.flags, result.flags);
+        assertSame(result.shared, result.list.get(1));
+        assertSame(result, result.child.parent);
+        assertSame(result.child, result.objects[0]);
+        assertEquals(3, result.objects.length);
+        assertNull(result.objects[1]);
+    }
+
+    public void testTextNodes ()
+        throws IOException
+    {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<java class=\"com.threerings.export.XMLImporter\" version=\"1.0\">\n" +
+            "<object class=\"com.threerings.export.XMLExporterTest$Sample\">\n" +
+            "  <count>4<!-- comment -->2</count>\n" +
+            "  <ratio>0.5<![CDATA[1]]></ratio>\n" +
+            "  <name>a&amp;b<![CDATA[c]]></name>\n" +
+            "</object>\n</java>";
+        // primitive values come from the first text node, objects from all of the text
+        Sample result = (Sample)importObject(xml.getBytes("UTF-8"));
+        assertEquals(4, result.count);
+        assertEquals(0.5, result.ratio);
+        assertEquals("a&bc", result.name);
+    }
+
+    protected static Sample createSample ()
+    {
+        Sample sample = new Sample();
+        sample.count = 42;
+        sample.ratio = 0.25;
+        sample.name = "";
+        sample.text = "<tag attr=\"value\"> & \t\ttabs\r\nnewline \u0085 é 😀";
+        sample.ints = new int[] { 1, 2, 3 };
+        sample.strings = new String[] { "one", "", "three" };
+        sample.shared = new ArrayList<Object>();
+        sample.list = new ArrayList<Object>();
+        sample.list.add(7);
+        sample.list.add(sample.shared);
+        sample.list.add(Flag.GREEN);
+        sample.map = new LinkedHashMap<String, Object>();
+        sample.map.put("alpha", 1.5f);
+        sample.map.put("beta", sample.list);
+        sample.flags = EnumSet.of(Flag.RED, Flag.BLUE);
+        sample.child = new Sample();
+        sample.child.parent = sample;
+        sample.objects = new Object[] { sample.child, null, "string" };
+        return sample;
+    }
+
+    protected static byte[] export (Object object)
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLExporter exporter = new XMLExporter(out);
+        exporter.writeObject(object);
+        exporter.close();
+        return out.toByteArray();
+    }
+
+    protected static Object importObject (byte[] bytes)
+        throws IOException
+    {
+        XMLImporter importer = new XMLImporter(new ByteArrayInputStream(bytes));
+        try {
+            return importer.readObject();
+        } finally {
+            importer.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.renderer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.threerings.opengl.compositor.config.RenderQueueConfig.SortMode;
+import com.threerings.opengl.renderer.Batch;
+import com.threerings.opengl.renderer.Renderer;
+
+/**
+ * Compares the radix sort modes against their comparator equivalents on randomly generated
+ * batch lists.  Runs headless: <code>java ... BatchSorterBenchmark [batches] [iterations]</code>.
+ */
+public class BatchSorterBenchmark
+{
+    public static void main (String[] args)
+    {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+        List<Batch> batches = createBatches(size, new Random(1L));
+        SortMode[][] pairs = {
+            { SortMode.BY_STATE, SortMode.BY_STATE_RADIX },
+            { SortMode.BACK_TO_FRONT, SortMode.BACK_TO_FRONT_RADIX },
+            { SortMode.FRONT_TO_BACK, SortMode.FRONT_TO_BACK_RADIX } };
+        for (SortMode[] pair : pairs) {
+            // alternate between the modes during the warmup so that neither gets an advantage
+            for (int ii = 0; ii < 3; ii++) {
+                time(pair[0], batches, iterations / 4);
+                time(pair[1], batches, iterations / 4);
+            }
+            double comparator = time(pair[0], batches, iterations);
+            double radix = time(pair[1], batches, iterations);
+            System.out.printf("%-20s %10.1f us  %-20s %10.1f us  (%.2fx)%n",
+                pair[0], comparator / 1000.0, pair[1], radix / 1000.0, comparator / radix);
+        }
+    }
+
+    /**
+     * Returns the average time in nanoseconds taken to sort a shuffled copy of the batches.
+     */
+    protected static double time (SortMode mode, List<Batch> batches, int iterations)
+    {
+        BatchSorter sorter = mode.createSorter();
+        List<Batch> list = new ArrayList<Batch>(batches.size());
+        Random random = new Random(2L);
+        long total = 0L;
+        for (int ii = 0; ii < iterations; ii++) {
+            // shuffle a copy of the batches (the order in which they're enqueued is arbitrary)
+            list.clear();
+            list.addAll(batches);
+            for (int jj = list.size() - 1; jj > 0; jj--) {
+                list.set(jj, list.set(random.nextInt(jj + 1), list.get(jj)));
+            }
+            long start = System.nanoTime();
+            mode.sort(list, sorter);
+            total += System.nanoTime() - start;
+        }
+        return (double)total / iterations;
+    }
+
+    /**
+     * Creates a list of batches with keys laid out as in SimpleBatch (vertex shader, fragment
+     * shader, textures, -1, buffer) drawn from small pools of states, and random depths.
+     */
+    protected static List<Batch> createBatches (int size, Random random)
+    {
+        List<Batch> batches = new ArrayList<Batch>(size);
+        for (int ii = 0; ii < size; ii++) {
+            Batch batch = new Batch() {
+                public boolean draw (Renderer renderer) {
+                    return false;
+                }
+            };
+            batch.key = new int[] { 1 + random.nextInt(8), 1 + random.nextInt(16),
+                1 + random.nextInt(200), -1, 1 + random.nextInt(500) };
+            batch.depth = -1f - random.nextFloat() * 500f;
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
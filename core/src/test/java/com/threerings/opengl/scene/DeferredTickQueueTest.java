@@ -0,0 +1,129 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.opengl.scene;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link DeferredTickQueue}.
+ */
+public class DeferredTickQueueTest extends TestCase
+{
+    public DeferredTickQueueTest (String name)
+    {
+        super(name);
+    }
+
+    public void testMergeOrder ()
+    {
+        final int count = 16;
+        final Thread caller = Thread.currentThread();
+        final boolean[] done = new boolean[count];
+        final Set<Thread> threads = Collections.synchronizedSet(Sets.<Thread>newHashSet());
+        final List<Integer> merged = Lists.newArrayList();
+        final CountDownLatch latch = new CountDownLatch(count);
+        DeferredTickQueue queue = new DeferredTickQueue();
+        for (int ii = 0; ii < count; ii++) {
+            final int idx = ii;
+            queue.add(new Runnable() {
+                public void run () {
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                    try {
+                        // wait until everyone has started, if there are enough workers
+                        latch.await(10L, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        // fall through
+                    }
+                    done[idx] = true;
+                }
+            }, new Runnable() {
+                public void run () {
+                    // merges run on the calling thread, after all of the work has completed
+                    assertSame(caller, Thread.currentThread());
+                    for (boolean d : done) {
+                        assertTrue(d);
+                    }
+                    merged.add(idx);
+                }
+            });
+        }
+        queue.run();
+
+        // the merges ran in order of submission and the queue was cleared
+        assertEquals(count, merged.size());
+        for (int ii = 0; ii < count; ii++) {
+            assertEquals(ii, (int)merged.get(ii));
+        }
+        assertEquals(0, queue.size());
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            assertTrue(threads.size() > 1);
+        }
+    }
+
+    public void testFailedWork ()
+    {
+        // a failure in one piece of work doesn't prevent the others from merging
+        final List<String> merged = Lists.newArrayList();
+        DeferredTickQueue queue = new DeferredTickQueue();
+        queue.add(new Runnable() {
+            public void run () {
+                throw new RuntimeException("Expected failure.");
+            }
+        }, new Runnable() {
+            public void run () {
+                merged.add("first");
+            }
+        });
+        queue.add(new Runnable() {
+            public void run () {
+                throw new RuntimeException("Expected failure.");
+            }
+        }, null);
+        queue.add(new Runnable() {
+            public void run () {
+                // no-op
+            }
+        }, new Runnable() {
+            public void run () {
+                merged.add("third");
+            }
+        });
+        queue.run();
+        assertEquals(Lists.newArrayList("first", "third"), merged);
+        assertEquals(0, queue.size());
+    }
+}
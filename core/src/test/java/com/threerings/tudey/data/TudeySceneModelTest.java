@@ -0,0 +1,292 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+package com.threerings.tudey.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.lang.ref.WeakReference;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.samskivert.util.Tuple;
+
+import com.threerings.io.ObjectInputStream;
+import com.threerings.io.ObjectOutputStream;
+import com.threerings.resource.ResourceManager;
+import com.threerings.util.MessageManager;
+
+import com.threerings.config.ConfigManager;
+import com.threerings.config.ConfigReference;
+import com.threerings.export.util.ExportUtil;
+
+import com.threerings.tudey.config.ActorConfig;
+import com.threerings.tudey.config.SceneGlobalConfig;
+import com.threerings.tudey.data.TudeySceneModel.Entry;
+import com.threerings.tudey.data.TudeySceneModel.EntryBatch;
+import com.threerings.tudey.data.TudeySceneModel.GlobalEntry;
+
+/**
+ * Tests the {@link TudeySceneModel}.
+ */
+public class TudeySceneModelTest extends TestCase
+{
+    public TudeySceneModelTest (String name)
+    {
+        super(name);
+    }
+
+    @Override
+    public void setUp ()
+    {
+        ResourceManager rsrcmgr = new ResourceManager("rsrc/");
+        MessageManager msgmgr = new MessageManager("rsrc.i18n");
+        _cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
+        _cfgmgr.init();
+    }
+
+    public void testSharedConfigManager ()
+    {
+        // two instances of the same scene share a single config manager
+        TudeySceneModel first = createModel(), second = createModel();
+        first.initShared(_cfgmgr);
+        second.initShared(_cfgmgr);
+        assertTrue(first.getConfigManager().isInitialized());
+        assertSame(first.getConfigManager(), second.getConfigManager());
+
+        // models initialized normally get their own
+        TudeySceneModel edited = createModel();
+        edited.init(_cfgmgr);
+        assertNotSame(first.getConfigManager(), edited.getConfigManager());
+    }
+
+    public void testSharedConfigManagerCollected ()
+    {
+        // the shared manager must not be kept alive by its own embedded configs
+        TudeySceneModel model = createModelWithEmbeddedConfig();
+        model.initShared(_cfgmgr);
+        TudeySceneModel other = createModelWithEmbeddedConfig();
+        other.initShared(_cfgmgr);
+        assertSame(model.getConfigManager(), other.getConfigManager());
+        WeakReference<ConfigManager> ref =
+            new WeakReference<ConfigManager>(model.getConfigManager());
+        model = other = null;
+
+        // soft references are guaranteed to be cleared before an OutOfMemoryError is thrown
+        List<long[]> hog = Lists.newArrayList();
+        try {
+            while (true) {
+                hog.add(new long[1 << 20]);
+            }
+        } catch (OutOfMemoryError e) {
+            hog = null;
+        }
+        System.gc();
+        assertNull(ref.get());
+
+        // a new model gets a new manager
+        model = createModelWithEmbeddedConfig();
+        model.initShared(_cfgmgr);
+        assertTrue(model.getConfigManager().isInitialized());
+    }
+
+    public void testEntryDataCached ()
+    {
+        TudeySceneModel model = createModel();
+        model.init(_cfgmgr);
+        TudeySceneModel.GlobalEntry entry = new TudeySceneModel.GlobalEntry();
+        model.addEntry(entry);
+
+        // the streamed entries are reused until the entries change
+        byte[] data = model.getEntryData();
+        assertSame(data, model.getEntryData());
+        model.addEntry(new TudeySceneModel.GlobalEntry());
+        byte[] ndata = model.getEntryData();
+        assertNotSame(data, ndata);
+        model.removeEntry(entry.getKey());
+        assertNotSame(ndata, model.getEntryData());
+    }
+
+    public void testStreamedEntriesNotShared ()
+        throws Exception
+    {
+        TudeySceneModel model = createModel();
+        model.init(_cfgmgr);
+        GlobalEntry entry = new GlobalEntry();
+        entry.sceneGlobal = new ConfigReference<SceneGlobalConfig>("global");
+        model.addEntry(entry);
+
+        // every model read from the same data (including the reused chunks of a second write)
+        // gets its own entries
+        byte[] data = stream(model);
+        TudeySceneModel first = unstream(data), second = unstream(data);
+        TudeySceneModel third = unstream(stream(model));
+        GlobalEntry fentry = (GlobalEntry)first.getEntry(entry.getKey());
+        GlobalEntry sentry = (GlobalEntry)second.getEntry(entry.getKey());
+        GlobalEntry tentry = (GlobalEntry)third.getEntry(entry.getKey());
+        assertEquals(entry, fentry);
+        assertEquals(entry, sentry);
+        assertEquals(entry, tentry);
+        assertNotSame(fentry, sentry);
+        assertNotSame(fentry, tentry);
+        assertNotSame(fentry.sceneGlobal, sentry.sceneGlobal);
+        assertNotSame(fentry.sceneGlobal, tentry.sceneGlobal);
+    }
+
+    public void testBatchNetChanges ()
+    {
+        TudeySceneModel model = createModel();
+        model.init(_cfgmgr);
+        GlobalEntry updated = new GlobalEntry(), removed = new GlobalEntry();
+        GlobalEntry restored = new GlobalEntry();
+        model.addEntry(updated);
+        model.addEntry(removed);
+        model.addEntry(restored);
+
+        final List<EntryBatch> batches = Lists.newArrayList();
+        final int[] individual = new int[1];
+        model.addObserver(new TudeySceneModel.BatchObserver() {
+            public void entryAdded (Entry entry) {
+                fail("Batch observer notified of individual addition.");
+            }
+            public void entryUpdated (Entry oentry, Entry nentry) {
+                fail("Batch observer notified of individual update.");
+            }
+            public void entryRemoved (Entry oentry) {
+                fail("Batch observer notified of individual removal.");
+            }
+            public void entriesChanged (EntryBatch batch) {
+                batches.add(batch);
+            }
+        });
+        model.addObserver(new TudeySceneModel.Observer() {
+            public void entryAdded (Entry entry) {
+                individual[0]++;
+            }
+            public void entryUpdated (Entry oentry, Entry nentry) {
+                individual[0]++;
+            }
+            public void entryRemoved (Entry oentry) {
+                individual[0]++;
+            }
+        });
+
+        model.startBatch();
+        GlobalEntry nupdated = (GlobalEntry)updated.clone();
+        nupdated.sceneGlobal = new ConfigReference<SceneGlobalConfig>("first");
+        model.updateEntry(nupdated);
+        nupdated = (GlobalEntry)nupdated.clone();
+        nupdated.sceneGlobal = new ConfigReference<SceneGlobalConfig>("second");
+        model.updateEntry(nupdated);
+        model.removeEntry(removed.getKey());
+
+        // nested batches are delivered when the outermost one ends
+        model.startBatch();
+        GlobalEntry added = new GlobalEntry(), temporary = new GlobalEntry();
+        model.addEntry(added);
+        model.addEntry(temporary);
+        model.removeEntry(temporary.getKey());
+        GlobalEntry nrestored = (GlobalEntry)restored.clone();
+        nrestored.sceneGlobal = new ConfigReference<SceneGlobalConfig>("third");
+        model.updateEntry(nrestored);
+        model.updateEntry((GlobalEntry)restored.clone());
+        model.endBatch();
+        assertTrue(batches.isEmpty());
+        model.endBatch();
+
+        // plain observers still hear about every change
+        assertEquals(8, individual[0]);
+        assertEquals(1, batches.size());
+        EntryBatch batch = batches.get(0);
+        assertEquals(ImmutableList.<Entry>of(added), batch.getAdded());
+        assertEquals(ImmutableList.<Entry>of(removed), batch.getRemoved());
+        List<Tuple<Entry, Entry>> pairs = batch.getUpdated();
+        assertEquals(1, pairs.size());
+        assertSame(updated, pairs.get(0).left);
+        assertSame(nupdated, pairs.get(0).right);
+
+        // an empty batch delivers nothing
+        model.startBatch();
+        model.endBatch();
+        assertEquals(1, batches.size());
+    }
+
+    /**
+     * Streams the supplied model as it would be sent to clients.
+     */
+    protected static byte[] stream (TudeySceneModel model)
+        throws IOException
+    {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);
+        model.writeObject(out);
+        out.flush();
+        return bout.toByteArray();
+    }
+
+    /**
+     * Reads a model streamed with {@link #stream}.
+     */
+    protected static TudeySceneModel unstream (byte[] data)
+        throws IOException
+    {
+        TudeySceneModel model = new TudeySceneModel();
+        model.readObject(new ObjectInputStream(new ByteArrayInputStream(data)));
+        return model;
+    }
+
+    /**
+     * Creates a model as if resolved from the scene repository.
+     */
+    protected TudeySceneModel createModel ()
+    {
+        TudeySceneModel model = new TudeySceneModel();
+        model.sceneId = 1;
+        model.name = "test";
+        return model;
+    }
+
+    /**
+     * Creates a model with an embedded config, as if resolved from the scene repository.
+     */
+    protected TudeySceneModel createModelWithEmbeddedConfig ()
+    {
+        TudeySceneModel model = createModel();
+        model.init(_cfgmgr);
+        ActorConfig config = new ActorConfig();
+        config.setName("embedded");
+        model.getConfigManager().getGroup(ActorConfig.class).addConfig(config);
+        return (TudeySceneModel)ExportUtil.fromBytes(ExportUtil.toBytes(model));
+    }
+
+    /** The global config manager. */
+    protected ConfigManager _cfgmgr;
+}
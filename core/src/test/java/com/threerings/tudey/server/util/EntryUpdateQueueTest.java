@@ -0,0 +1,167 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.server.util;
+
+import junit.framework.TestCase;
+
+import com.threerings.resource.ResourceManager;
+import com.threerings.util.MessageManager;
+
+import com.threerings.config.ConfigManager;
+import com.threerings.config.ConfigReference;
+
+import com.threerings.tudey.config.SceneGlobalConfig;
+import com.threerings.tudey.data.EntryDeltasUpdate;
+import com.threerings.tudey.data.TudeySceneModel;
+import com.threerings.tudey.data.TudeySceneModel.GlobalEntry;
+
+/**
+ * Tests the {@link EntryUpdateQueue}.
+ */
+public class EntryUpdateQueueTest extends TestCase
+{
+    public EntryUpdateQueueTest (String name)
+    {
+        super(name);
+    }
+
+    @Override
+    public void setUp ()
+    {
+        ResourceManager rsrcmgr = new ResourceManager("rsrc/");
+        MessageManager msgmgr = new MessageManager("rsrc.i18n");
+        ConfigManager cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
+        cfgmgr.init();
+        _model = new TudeySceneModel();
+        _model.sceneId = 1;
+        _model.init(cfgmgr);
+        _existing = createEntry("existing");
+        _model.addEntry(_existing);
+    }
+
+    public void testAddThenUpdate ()
+    {
+        // the update folds into the addition
+        GlobalEntry added = createEntry("added");
+        _model.assignEntryId(added);
+        _queue.add(added);
+        GlobalEntry updated = createEntry("updated", added.getId());
+        _queue.update(updated);
+
+        EntryDeltasUpdate update = flushAndApply();
+        assertEquals(1, update.added.length);
+        assertSame(updated, update.added[0]);
+        assertEquals(0, update.deltaKeys.length);
+        assertEquals(0, update.removed.length);
+        assertEquals(updated.sceneGlobal, getGlobal(added.getId()).sceneGlobal);
+    }
+
+    public void testAddThenRemove ()
+    {
+        // the removal cancels the addition
+        GlobalEntry added = createEntry("added");
+        _model.assignEntryId(added);
+        _queue.add(added);
+        _queue.remove(added.getKey());
+        assertNull(_queue.flush(_model, _model.sceneId, _model.version));
+        assertTrue(_queue.isEmpty());
+        assertNull(_model.getEntry(added.getKey()));
+    }
+
+    public void testRemoveThenAdd ()
+    {
+        // re-adding a removed entry replaces it rather than leaving it deleted
+        _queue.remove(_existing.getKey());
+        GlobalEntry readded = createEntry("readded", _existing.getId());
+        _queue.add(readded);
+
+        EntryDeltasUpdate update = flushAndApply();
+        assertEquals(0, update.added.length);
+        assertEquals(0, update.removed.length);
+        assertEquals(1, update.deltaKeys.length);
+        assertEquals(readded.sceneGlobal, getGlobal(_existing.getId()).sceneGlobal);
+    }
+
+    public void testUpdateThenRemove ()
+    {
+        _queue.update(createEntry("updated", _existing.getId()));
+        _queue.remove(_existing.getKey());
+
+        EntryDeltasUpdate update = flushAndApply();
+        assertEquals(0, update.deltaKeys.length);
+        assertEquals(1, update.removed.length);
+        assertNull(_model.getEntry(_existing.getKey()));
+    }
+
+    /**
+     * Flushes the queue, applies the resulting update to the model, and returns it.
+     */
+    protected EntryDeltasUpdate flushAndApply ()
+    {
+        EntryDeltasUpdate update = _queue.flush(_model, _model.sceneId, _model.version);
+        assertNotNull(update);
+        assertTrue(_queue.isEmpty());
+        update.apply(_model);
+        return update;
+    }
+
+    /**
+     * Returns the global entry with the specified id.
+     */
+    protected GlobalEntry getGlobal (int id)
+    {
+        return (GlobalEntry)_model.getEntry(id);
+    }
+
+    /**
+     * Creates a global entry referring to the named config.
+     */
+    protected static GlobalEntry createEntry (String name)
+    {
+        GlobalEntry entry = new GlobalEntry();
+        entry.sceneGlobal = new ConfigReference<SceneGlobalConfig>(name);
+        return entry;
+    }
+
+    /**
+     * Creates a global entry referring to the named config with the specified id.
+     */
+    protected static GlobalEntry createEntry (String name, int id)
+    {
+        GlobalEntry entry = createEntry(name);
+        entry.setId(id);
+        return entry;
+    }
+
+    /** The scene model. */
+    protected TudeySceneModel _model;
+
+    /** An entry already in the model. */
+    protected GlobalEntry _existing;
+
+    /** The queue under test. */
+    protected EntryUpdateQueue _queue = new EntryUpdateQueue();
+}
@@ -0,0 +1,127 @@
+//
+// $Id$
+//
+// Clyde library - tools for developing networked games
+// Copyright (C) 2005-2012 Three Rings Design, Inc.
+// http://code.google.com/p/clyde/
+//
+// Redistribution and use in source and binary forms, with or without modification, are permitted
+// provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice, this list of
+//    conditions and the following disclaimer.
+// 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+//    conditions and the following disclaimer in the documentation and/or other materials provided
+//    with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED WARRANTIES,
+// INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+// PARTICULAR PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+// INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+// TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+// LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+// SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+package com.threerings.tudey.tools;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.threerings.resource.ResourceManager;
+import com.threerings.util.MessageManager;
+
+import com.threerings.config.ConfigManager;
+
+import com.threerings.tudey.data.TudeySceneModel;
+import com.threerings.tudey.data.TudeySceneModel.Entry;
+import com.threerings.tudey.data.TudeySceneModel.GlobalEntry;
+
+/**
+ * Tests the {@link EditHistory}.
+ */
+public class EditHistoryTest extends TestCase
+{
+    public EditHistoryTest (String name)
+    {
+        super(name);
+    }
+
+    public void testSpillFileReuse ()
+        throws IOException
+    {
+        EditHistory.SpillFile file = new EditHistory.SpillFile();
+        try {
+            long a = file.write(new byte[10]), b = file.write(new byte[20]);
+            long c = file.write(new byte[5]);
+            assertEquals(35L, file.getLength());
+
+            // freed space is reused rather than appended
+            file.free(b, 20);
+            assertEquals(b, file.write(new byte[15]));
+            assertEquals(35L, file.getLength());
+
+            // freeing the end of the file (merged with the free space before it) truncates it
+            file.free(c, 5);
+            assertEquals(25L, file.getLength());
+            file.free(a, 10);
+            file.free(b, 15);
+            assertEquals(0L, file.getLength());
+        } finally {
+            file.close();
+        }
+        assertFalse(file._file.exists());
+    }
+
+    public void testSpillAndRestore ()
+    {
+        ResourceManager rsrcmgr = new ResourceManager("rsrc/");
+        MessageManager msgmgr = new MessageManager("rsrc.i18n");
+        ConfigManager cfgmgr = new ConfigManager(rsrcmgr, msgmgr, "config/");
+        cfgmgr.init();
+        TudeySceneModel scene = new TudeySceneModel();
+        scene.init(cfgmgr);
+
+        GlobalEntry[] entries = new GlobalEntry[4];
+        for (int ii = 0; ii < entries.length; ii++) {
+            scene.addEntry(entries[ii] = new GlobalEntry());
+        }
+
+        // with no budget, every edit but the latest is spilled as soon as it's compacted
+        EditHistory history = new EditHistory(0L);
+        for (int ii = 0; ii < 3; ii++) {
+            history.addEdit(createRemoval(scene, ii, entries[ii]));
+        }
+        EditHistory.SpillFile spill = history._spill;
+        assertNotNull(spill);
+        assertTrue(spill.getLength() > 0L);
+
+        // undoing restores the spilled entries and frees their space
+        while (history.canUndo()) {
+            history.undo();
+        }
+        assertEquals(4, scene.getEntries().size());
+        assertEquals(0L, spill.getLength());
+        while (history.canRedo()) {
+            history.redo();
+        }
+        assertEquals(1, scene.getEntries().size());
+
+        // discarding the edits deletes the file
+        history.addEdit(createRemoval(scene, 3, entries[3]));
+        assertTrue(spill.getLength() > 0L);
+        history.discardAllEdits();
+        assertNull(history._spill);
+        assertFalse(spill._file.exists());
+    }
+
+    /**
+     * Creates and applies an edit that removes the specified entry.
+     */
+    protected static EntryEdit createRemoval (TudeySceneModel scene, int id, Entry entry)
+    {
+        return new EntryEdit(scene, id, 0, new Entry[0], new Entry[0],
+            new Object[] { entry.getKey() });
+    }
+}